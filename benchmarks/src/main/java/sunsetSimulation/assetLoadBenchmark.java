@@ -0,0 +1,103 @@
+/**
+ * assetLoadBenchmark.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * assetLoadBenchmark measures loading every asset
+ * the layout uses, as a boot does, with a fresh
+ * assetLoader each time.
+ * 
+ *   cold    decoding and scaling every PNG, no disk cache
+ *   cached  reading the pixels back from a warm disk cache
+ * 
+ * At scale 1 nothing is scaled; at 1.5 (EG the
+ * design layout on a 4K panel at 200%) every
+ * image is.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class assetLoadBenchmark {
+
+	@Param({"1.0", "1.5"})
+	public double scale;
+
+	private String[] paths;
+	private File cacheDir;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		paths = benchmarkFixtures.layout().assetPaths();
+		cacheDir = Files.createTempDirectory("sunsetSimulationAssets").toFile();
+		load(cacheDir);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		File[] entries = cacheDir.listFiles();
+		if (entries != null) {
+			for (File entry : entries) {
+				entry.delete();
+			}
+		}
+		cacheDir.delete();
+	}
+
+	@Benchmark
+	public BufferedImage[] cold() {
+		return load(null);
+	}
+
+	@Benchmark
+	public BufferedImage[] cached() {
+		return load(cacheDir);
+	}
+
+	private BufferedImage[] load(File dir) {
+		assetLoader assets = new assetLoader(sunsetSimulation.class, null, dir, scale);
+		assets.preload(paths);
+		BufferedImage[] images = new BufferedImage[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			images[i] = assets.image(paths[i]);
+		}
+		assets.finish();
+		return images;
+	}
+
+}
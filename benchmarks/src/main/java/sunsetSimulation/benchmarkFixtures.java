@@ -0,0 +1,79 @@
+/**
+ * benchmarkFixtures.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * benchmarkFixtures builds the overlay's real
+ * buttons from the real layout and assets, at
+ * the layout's design size, without a screen.
+ */
+public class benchmarkFixtures {
+
+	private benchmarkFixtures() {}
+
+	/**
+	 * @return the overlay's button layout
+	 */
+	public static buttonLayout layout() throws IOException {
+		return buttonLayout.load(sunsetSimulation.class, sunsetSimulation.layoutPath);
+	}
+
+	/**
+	 * @param layout  the button layout
+	 * @return every asset the layout uses, packed as the
+	 * overlay packs them
+	 */
+	public static spriteAtlas atlas(buttonLayout layout) {
+		assetLoader assets = new assetLoader(sunsetSimulation.class, null, null, 1);
+		String[] paths = layout.assetPaths();
+		assets.preload(paths);
+		BufferedImage[] sprites = new BufferedImage[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			sprites[i] = assets.image(paths[i]);
+		}
+		assets.finish();
+		return new spriteAtlas(null, sprites);
+	}
+
+	/**
+	 * @param layout  the button layout
+	 * @param atlas   the layout's assets
+	 * @return the layout's buttons, in layout order,
+	 * placed at the design size
+	 */
+	public static List<simulationButton> buttons(buttonLayout layout, spriteAtlas atlas) {
+		List<String> paths = Arrays.asList(layout.assetPaths());
+		List<simulationButton> buttons = new ArrayList<simulationButton>();
+		for (buttonLayout.entry entry : layout.getEntries()) {
+			Rectangle bounds = layout.bounds(entry, 1);
+			int idle = paths.indexOf(entry.asset(simulationButton.IDLE));
+			int clicked = paths.indexOf(entry.asset(simulationButton.CLICKED));
+			buttons.add(entry.radio
+					? new simulationButton(atlas, idle, clicked, paths.indexOf(entry.asset(simulationButton.ACTIVE)),
+							entry.key, bounds)
+					: new simulationButton(atlas, idle, clicked, entry.key, bounds));
+		}
+		return buttons;
+	}
+
+}
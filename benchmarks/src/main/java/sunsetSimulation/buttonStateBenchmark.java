@@ -0,0 +1,153 @@
+/**
+ * buttonStateBenchmark.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * buttonStateBenchmark measures switching a
+ * button's state and repainting for it, into an
+ * offscreen image the size of the overlay with
+ * the overlay's translucent pixel format.
+ * 
+ *   dirtyRepaint      only the rectangles dirtyRegions collected
+ *   fullFrameRepaint  the whole panel, as before dirtyRegions
+ * 
+ * Each invocation is one tap: the button goes to
+ * CLICKED and is painted, then back to IDLE and
+ * is painted again. dirtyRegions is only used on
+ * the EDT, so both variants run their tap there,
+ * and pay the same hand-off to it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class buttonStateBenchmark {
+
+	// The overlay's nearly-transparent background
+	private static final Color background = new Color(0, 0, 0, 1);
+
+	private JPanel panel;
+	private List<simulationButton> buttons;
+	private dirtyRegions repaints;
+	private BufferedImage frame;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		buttonLayout layout = benchmarkFixtures.layout();
+		buttons = benchmarkFixtures.buttons(layout, benchmarkFixtures.atlas(layout));
+		panel = new JPanel(null);
+		panel.setOpaque(false);
+		for (simulationButton button : buttons) {
+			panel.add(button);
+		}
+		panel.setSize(layout.getDesignSize());
+		repaints = new dirtyRegions(panel);
+		frame = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+	}
+
+	@Benchmark
+	public long dirtyRepaint() throws Exception {
+		EventQueue.invokeAndWait(dirtyTap);
+		return repaints.getLastPixels();
+	}
+
+	@Benchmark
+	public long fullFrameRepaint() throws Exception {
+		EventQueue.invokeAndWait(fullFrameTap);
+		return (long)panel.getWidth() * panel.getHeight();
+	}
+
+	private final Runnable dirtyTap = new Runnable() {
+		@Override
+		public void run() {
+			simulationButton button = nextButton();
+			button.setState(simulationButton.CLICKED);
+			repaints.mark(button);
+			repaints.flush();
+			paint(button.getBounds());
+			button.setState(simulationButton.IDLE);
+			repaints.mark(button);
+			repaints.flush();
+			paint(button.getBounds());
+		}
+	};
+
+	private final Runnable fullFrameTap = new Runnable() {
+		@Override
+		public void run() {
+			simulationButton button = nextButton();
+			button.setState(simulationButton.CLICKED);
+			paint(panel.getBounds());
+			button.setState(simulationButton.IDLE);
+			paint(panel.getBounds());
+		}
+	};
+
+	private simulationButton nextButton() {
+		simulationButton button = buttons.get(next);
+		next = (next + 1) % buttons.size();
+		return button;
+	}
+
+	/**
+	 * @param area  the part of the panel to repaint
+	 * Clears the area and paints every button in it,
+	 * as Swing would for a translucent window.
+	 */
+	private void paint(Rectangle area) {
+		Graphics2D g = frame.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.setColor(background);
+		g.fill(area);
+		g.setComposite(AlphaComposite.SrcOver);
+		for (simulationButton button : buttons) {
+			Rectangle bounds = button.getBounds();
+			if (bounds.intersects(area)) {
+				Graphics2D child = (Graphics2D)g.create(bounds.x, bounds.y, bounds.width, bounds.height);
+				button.paint(child);
+				child.dispose();
+			}
+		}
+		g.dispose();
+	}
+
+}
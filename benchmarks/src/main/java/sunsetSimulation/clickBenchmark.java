@@ -0,0 +1,112 @@
+/**
+ * clickBenchmark.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * clickBenchmark measures click handling: a tap
+ * (press then release) going through
+ * buttonController, as the click state machine
+ * hands it over, including queueing the key
+ * events for the injector thread. The injector
+ * delivers to countingKeyInjector, so nothing
+ * reaches the OS.
+ * 
+ * The click state machine itself isn't in the
+ * loop, since it holds events for a Swing timer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class clickBenchmark {
+
+	private inputInjector injector;
+	private buttonController controller;
+	private simulationButton hold;
+	private simulationButton[] stages;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		buttonLayout layout = benchmarkFixtures.layout();
+		List<simulationButton> buttons = benchmarkFixtures.buttons(layout, benchmarkFixtures.atlas(layout));
+		List<simulationButton> radio = new ArrayList<simulationButton>();
+		for (simulationButton button : buttons) {
+			if (button.isMomentary) {
+				radio.add(button);
+			} else if (hold == null) {
+				hold = button;
+			}
+		}
+		stages = radio.toArray(new simulationButton[0]);
+		injector = new inputInjector(new countingKeyInjector(), new pressedKeySet(layout.keys()),
+				new keyPulseScheduler(TimeUnit.MILLISECONDS.toNanos(100)), new latencyStats(layout.keys()), null,
+				new Runnable() {
+					@Override
+					public void run() {}
+				});
+		controller = new buttonController(injector, new latencyStats(layout.keys()), null, null, null);
+	}
+
+	/**
+	 * Lets the injector catch up between iterations,
+	 * so its queue never grows without bound.
+	 */
+	@TearDown(Level.Iteration)
+	public void drain() throws InterruptedException {
+		while (injector.hasQueued()) {
+			Thread.sleep(1);
+		}
+	}
+
+	@Benchmark
+	public simulationButton tapHoldButton() {
+		long now = System.nanoTime();
+		controller.click(hold, false, now);
+		controller.click(hold, true, now);
+		return controller.getClickedButton();
+	}
+
+	@Benchmark
+	public simulationButton selectStage() {
+		simulationButton stage = stages[next];
+		next = (next + 1) % stages.length;
+		long now = System.nanoTime();
+		controller.click(stage, false, now);
+		controller.click(stage, true, now);
+		return controller.getActiveButton();
+	}
+
+}
@@ -0,0 +1,51 @@
+/**
+ * countingKeyInjector.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * countingKeyInjector is the benchmarks' stand-in
+ * for SendInput and Robot: it only counts what it
+ * was asked to send, so the input path can be
+ * driven flat out on a headless box without
+ * remembering every event.
+ */
+public class countingKeyInjector implements keyInjector {
+
+	private volatile long events;
+	private volatile long calls;
+
+	@Override
+	public void send(int[] keys, boolean[] down, int count) {
+		// Only the injector thread writes
+		events += count;
+		calls++;
+	}
+
+	/**
+	 * @return events sent so far
+	 */
+	public long getEvents() {
+		return events;
+	}
+
+	/**
+	 * @return batches sent so far
+	 */
+	public long getCalls() {
+		return calls;
+	}
+
+}
@@ -0,0 +1,88 @@
+/**
+ * windowLookupBenchmark.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * windowLookupBenchmark measures finding the
+ * simulation's window among a realistic number
+ * of top-level windows, with fixedWindowTable in
+ * place of user32. The simulation sits at the
+ * bottom of the z-order, the worst case for a
+ * scan.
+ * 
+ *   cachedFind     the usual case: the cached handle is still good
+ *   fullScan       what every keystroke used to cost
+ *   bringToFront   focusing the simulation when it already has focus
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class windowLookupBenchmark {
+
+	private static final String simulationName = "Sunset Eruption Sony No Skybox";
+
+	@Param({"100", "400"})
+	public int windowCount;
+
+	private windowResolver windows;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String[] titles = new String[windowCount];
+		for (int i = 0; i < titles.length - 1; i++) {
+			titles[i] = "Background window " + i;
+		}
+		titles[titles.length - 1] = simulationName;
+		fixedWindowTable table = new fixedWindowTable(titles);
+		windows = new windowResolver(table);
+		windows.bringToFront(simulationName, true);
+	}
+
+	@Benchmark
+	public long cachedFind() {
+		return windows.find(simulationName, true);
+	}
+
+	@Benchmark
+	public long fullScan() {
+		windows.invalidate(simulationName);
+		return windows.find(simulationName, true);
+	}
+
+	@Benchmark
+	public boolean bringToFront() {
+		return windows.bringToFront(simulationName, true);
+	}
+
+}
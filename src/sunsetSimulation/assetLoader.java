@@ -0,0 +1,353 @@
+/**
+ * assetLoader.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * assetLoader decodes the overlay's button images
+ * in parallel on a small worker pool, so startup
+ * waits for the slowest image rather than the sum
+ * of all of them.
+ * 
+ * Each image is scaled once to the layout's scale
+ * and converted to a format that is compatible
+ * with the screen, so drawing it is a plain blit
+ * and nothing is scaled while painting. Scaling
+ * halves the image repeatedly with bilinear
+ * filtering and finishes with a bicubic pass,
+ * which keeps thin lines that a single large
+ * step would drop. The converted pixels are kept
+ * in an on-disk cache, one entry per asset and
+ * scale, which lets later boots skip decoding and
+ * scaling entirely; a cache entry is thrown away
+ * whenever its source asset changes. An entry
+ * is only used if its size is the one its source
+ * scales to and the file holds exactly that many
+ * pixels; anything else is decoded again.
+ * 
+ * Assets that can't be found are collected and
+ * reported together by finish(), and replaced by
+ * an empty image, so no caller ever sees null.
+ */
+public class assetLoader {
+
+	private static final int cacheMagic = 0x53534332; // "SSC2"
+	// magic, stamp, source width and height, width and height
+	private static final int cacheHeaderBytes = 4 + 8 + 4 * 4;
+	// Far beyond any button, short of an overflowing pixel count
+	private static final int maxCacheSide = 8192;
+
+	private final Class<?> base;
+	private final GraphicsConfiguration gc;
+	private final File cacheDir;
+	private final double scale;
+	private final ExecutorService pool;
+	private final ConcurrentHashMap<String, Future<BufferedImage>> images =
+			new ConcurrentHashMap<String, Future<BufferedImage>>();
+	private final List<String> missing = Collections.synchronizedList(new ArrayList<String>());
+
+	/**
+	 * @param base      class whose resources hold the assets
+	 * @param gc        screen the images will be drawn on, or null
+	 * @param cacheDir  directory for decoded images, or null for no cache
+	 * @param scale     how much to scale every image, 1 for none
+	 */
+	public assetLoader(Class<?> base, GraphicsConfiguration gc, File cacheDir, double scale) {
+		this.base = base;
+		this.gc = gc;
+		this.cacheDir = cacheDir;
+		this.scale = scale;
+		pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "Sunset Simulation asset loader");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * @return the default cache directory, under the
+	 * user's local application data on Windows
+	 */
+	public static File defaultCacheDir() {
+		String root = System.getenv("LOCALAPPDATA");
+		if (root == null) {
+			root = System.getProperty("java.io.tmpdir");
+		}
+		return new File(root, "SunsetSimulation" + File.separator + "assets");
+	}
+
+	/**
+	 * @param paths  paths to the assets
+	 * Starts decoding the assets in the background.
+	 */
+	public void preload(String[] paths) {
+		for (String path : paths) {
+			request(path);
+		}
+	}
+
+	/**
+	 * @param path  path to the asset
+	 * @return the decoded asset, or an empty image if it is missing
+	 */
+	public BufferedImage image(String path) {
+		try {
+			return request(path).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+		}
+		missing.add(path);
+		return placeholder();
+	}
+
+	/**
+	 * Reports every missing asset in one place,
+	 * stops the worker pool, and lets go of the
+	 * decoded images.
+	 */
+	public void finish() {
+		pool.shutdown();
+		images.clear();
+		if (!missing.isEmpty()) {
+			System.err.println("Couldn't find files: " + missing);
+		}
+	}
+
+	/**
+	 * @return paths of the assets that couldn't be loaded so far
+	 */
+	public List<String> getMissing() {
+		synchronized (missing) {
+			return new ArrayList<String>(missing);
+		}
+	}
+
+	private Future<BufferedImage> request(final String path) {
+		Future<BufferedImage> future = images.get(path);
+		if (future == null) {
+			future = pool.submit(new Callable<BufferedImage>() {
+				@Override
+				public BufferedImage call() throws IOException {
+					return load(path);
+				}
+			});
+			Future<BufferedImage> raced = images.putIfAbsent(path, future);
+			if (raced != null) {
+				future.cancel(false);
+				future = raced;
+			}
+		}
+		return future;
+	}
+
+	/**
+	 * @param path  path to the asset
+	 * @return the asset at this loader's scale, from
+	 * the cache if it is current
+	 * Runs on the worker pool.
+	 */
+	private BufferedImage load(String path) throws IOException {
+		URL url = base.getResource(path);
+		if (url == null) {
+			missing.add(path);
+			return placeholder();
+		}
+		URLConnection connection = url.openConnection();
+		long stamp = connection.getLastModified() * 31 + connection.getContentLengthLong();
+		File cached = cacheDir == null ? null : new File(cacheDir,
+				path.replace('/', '_') + "@" + Math.round(scale * 10000) + ".argb");
+		if (cached != null && cached.isFile()) {
+			BufferedImage image = readCache(cached, stamp);
+			if (image != null) {
+				return image;
+			}
+		}
+		BufferedImage decoded = ImageIO.read(url);
+		if (decoded == null) {
+			missing.add(path);
+			return placeholder();
+		}
+		int sourceW = decoded.getWidth();
+		int sourceH = decoded.getHeight();
+		int w = scaledSide(sourceW);
+		int h = scaledSide(sourceH);
+		if (w != sourceW || h != sourceH) {
+			decoded = scaled(decoded, w, h);
+		}
+		int[] pixels = decoded.getRGB(0, 0, w, h, null, 0, w);
+		if (cached != null) {
+			writeCache(cached, stamp, sourceW, sourceH, w, h, pixels);
+		}
+		return toCompatible(w, h, pixels);
+	}
+
+	/**
+	 * @param side  width or height of a source image
+	 * @return the same side at this loader's scale
+	 */
+	private int scaledSide(int side) {
+		return Math.max(1, buttonLayout.snap(side, scale));
+	}
+
+	/**
+	 * @param cached  the cache entry
+	 * @param stamp   the source asset's stamp
+	 * @return the cached image, or null if the entry is
+	 * stale or doesn't hold the image its header claims
+	 */
+	private BufferedImage readCache(File cached, long stamp) {
+		try (FileChannel in = FileChannel.open(cached.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(cacheHeaderBytes);
+			if (!readFully(in, header) || header.getInt() != cacheMagic || header.getLong() != stamp) {
+				return null;
+			}
+			int sourceW = header.getInt();
+			int sourceH = header.getInt();
+			int w = header.getInt();
+			int h = header.getInt();
+			if (sourceW <= 0 || sourceH <= 0 || sourceW > maxCacheSide || sourceH > maxCacheSide
+					|| w != scaledSide(sourceW) || h != scaledSide(sourceH)
+					|| w > maxCacheSide || h > maxCacheSide
+					|| in.size() != cacheHeaderBytes + 4L * w * h) {
+				return null;
+			}
+			ByteBuffer body = ByteBuffer.allocate(4 * w * h);
+			if (!readFully(in, body)) {
+				return null;
+			}
+			int[] pixels = new int[w * h];
+			body.asIntBuffer().get(pixels);
+			return toCompatible(w, h, pixels);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return whether the buffer was filled, ready to read from
+	 */
+	private static boolean readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (in.read(buffer) < 0) {
+				return false;
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+
+	private void writeCache(File cached, long stamp, int sourceW, int sourceH, int w, int h, int[] pixels) {
+		cacheDir.mkdirs();
+		File temp = new File(cacheDir, cached.getName() + "." + Thread.currentThread().getId() + ".tmp");
+		ByteBuffer buffer = ByteBuffer.allocate(cacheHeaderBytes + 4 * pixels.length);
+		buffer.putInt(cacheMagic).putLong(stamp).putInt(sourceW).putInt(sourceH).putInt(w).putInt(h);
+		buffer.asIntBuffer().put(pixels);
+		buffer.rewind();
+		try (FileOutputStream out = new FileOutputStream(temp)) {
+			FileChannel channel = out.getChannel();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			temp.delete();
+			return;
+		}
+		cached.delete();
+		if (!temp.renameTo(cached)) {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * @return an image in the screen's own format,
+	 * holding the given ARGB pixels
+	 */
+	private BufferedImage toCompatible(int w, int h, int[] pixels) {
+		BufferedImage image = gc != null
+				? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+				: new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+		image.setRGB(0, 0, w, h, pixels, 0, w);
+		return image;
+	}
+
+	/**
+	 * @param source  the decoded image
+	 * @param w       width to scale to
+	 * @param h       height to scale to
+	 * @return the image at the new size
+	 */
+	static BufferedImage scaled(BufferedImage source, int w, int h) {
+		BufferedImage image = source;
+		int cw = source.getWidth();
+		int ch = source.getHeight();
+		// Halve while the image is at least twice the target,
+		// then close the remaining gap in one bicubic step
+		while (true) {
+			boolean last = cw / 2 < w || ch / 2 < h;
+			int nw = last ? w : cw / 2;
+			int nh = last ? h : ch / 2;
+			BufferedImage next = new BufferedImage(nw, nh, BufferedImage.TYPE_INT_ARGB_PRE);
+			Graphics2D g = next.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, last
+					? RenderingHints.VALUE_INTERPOLATION_BICUBIC : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g.drawImage(image, 0, 0, nw, nh, null);
+			g.dispose();
+			image = next;
+			cw = nw;
+			ch = nh;
+			if (last) {
+				return image;
+			}
+		}
+	}
+
+	private static BufferedImage placeholder() {
+		return new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+	}
+
+}
@@ -0,0 +1,139 @@
+/**
+ * bootSequence.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * bootSequence runs the overlay's startup stages
+ * side by side and times each of them, from JVM
+ * start to the moment the overlay takes touches.
+ * 
+ * Background stages each get their own thread;
+ * stages that must run on the EDT are timed with
+ * begin() and end(). finish() logs every phase,
+ * warns if boot took longer than
+ * -DsunsetSimulation.bootBudgetMillis=..., and
+ * writes the phases to
+ * -DsunsetSimulation.bootReport=<file>, so a
+ * harness can track boot time between builds.
+ */
+public class bootSequence {
+
+	private final long startNanos = System.nanoTime();
+	private final long jvmMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+	private final Map<String, Long> begun = new LinkedHashMap<String, Long>();
+	private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+	/**
+	 * @param name  name of the stage
+	 * @param work  the stage itself
+	 * @return the stage's result, once it is done
+	 * Starts the stage on a thread of its own.
+	 */
+	public <T> Future<T> stage(final String name, final Callable<T> work) {
+		final FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				begin(name);
+				try {
+					return work.call();
+				} finally {
+					end(name);
+				}
+			}
+		});
+		Thread thread = new Thread(task, "Sunset Simulation boot: " + name);
+		thread.setDaemon(true);
+		thread.start();
+		return task;
+	}
+
+	/**
+	 * @param name  name of the phase starting now
+	 */
+	public synchronized void begin(String name) {
+		begun.put(name, Long.valueOf(System.nanoTime()));
+	}
+
+	/**
+	 * @param name  name of the phase ending now
+	 */
+	public synchronized void end(String name) {
+		Long began = begun.get(name);
+		if (began != null) {
+			phases.put(name, Long.valueOf(
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began.longValue())));
+		}
+	}
+
+	/**
+	 * @return milliseconds from JVM start until now
+	 */
+	public long elapsedMillis() {
+		return jvmMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * @return each phase finished so far, in milliseconds,
+	 * with "jvm" for the time before main() ran
+	 */
+	public synchronized Map<String, Long> getPhaseMillis() {
+		Map<String, Long> copy = new LinkedHashMap<String, Long>();
+		copy.put("jvm", Long.valueOf(jvmMillis));
+		copy.putAll(phases);
+		return copy;
+	}
+
+	/**
+	 * @return whether boot came in under budget
+	 * Call once the overlay is taking touches. Logs
+	 * the phases and writes the boot report.
+	 */
+	public boolean finish() {
+		long total = elapsedMillis();
+		StringBuilder report = new StringBuilder();
+		for (Map.Entry<String, Long> phase : getPhaseMillis().entrySet()) {
+			report.append(phase.getKey()).append(": ").append(phase.getValue()).append('\n');
+		}
+		report.append("interactive: ").append(total).append('\n');
+		System.out.print("Boot phases (ms)\n" + report);
+		String path = System.getProperty("sunsetSimulation.bootReport");
+		if (path != null) {
+			try (Writer out = new FileWriter(path)) {
+				out.write(report.toString());
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		Long budget = Long.getLong("sunsetSimulation.bootBudgetMillis");
+		if (budget != null && total > budget.longValue()) {
+			System.err.println("Boot took " + total + " ms, over its " + budget + " ms budget");
+			return false;
+		}
+		return true;
+	}
+
+}
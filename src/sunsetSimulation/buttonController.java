@@ -0,0 +1,211 @@
+/**
+ * buttonController.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * buttonController is the overlay's button logic:
+ * which button is clicked, which timeline stage is
+ * selected, and which keys that means pressing.
+ * It takes the clicks clickStateMachine delivers,
+ * changes button states and queues key events.
+ * 
+ * It needs no window, so the same logic can run
+ * headless, EG under inputReplayer.
+ */
+public class buttonController implements clickStateMachine.sink {
+
+	private final inputInjector injector;
+	private final latencyStats latency;
+	private final interactionJournal journal;
+	private final dirtyRegions repaints;
+	private final Runnable onTouch;
+	private simulationButton activeButton;
+	private simulationButton clickedButton;
+	private long touchNanos;
+
+	/**
+	 * @param injector  queues the key events
+	 * @param latency   where to record handler times
+	 * @param journal   where to record state changes, or null
+	 * @param repaints  where to mark changed buttons, or null
+	 * @param onTouch   run on every click, or null
+	 */
+	public buttonController(inputInjector injector, latencyStats latency, interactionJournal journal,
+			dirtyRegions repaints, Runnable onTouch) {
+		this.injector = injector;
+		this.latency = latency;
+		this.journal = journal;
+		this.repaints = repaints;
+		this.onTouch = onTouch;
+	}
+
+	/**
+	 * @param button      the button that was interacted with
+	 * @param released    whether this was the end of the interaction
+	 * @param touchNanos  System.nanoTime() when the touch arrived
+	 * Times the touch on its way through clickHandler.
+	 */
+	@Override
+	public void click(simulationButton button, boolean released, long touchNanos) {
+		this.touchNanos = touchNanos;
+		long start = System.nanoTime();
+		clickHandler(button, released);
+		latency.record(latencyStats.HANDLER, button.key, System.nanoTime() - start);
+	}
+
+	/**
+	 * @return the button being held, or null
+	 */
+	public simulationButton getClickedButton() {
+		return clickedButton;
+	}
+
+	/**
+	 * @return the selected timeline stage, or null
+	 */
+	public simulationButton getActiveButton() {
+		return activeButton;
+	}
+
+	/**
+	 * @param button    the button that was interacted with
+	 * @param released  whether this was the end of the interaction
+	 * Launch the application.
+	 */
+	protected void clickHandler(simulationButton button, boolean released) {
+		clickHandler(button, released, false);
+	}
+
+	/**
+	 * @param button      the button to pulse
+	 * @param touchNanos  System.nanoTime() when the command arrived
+	 * Presses the button as a touch would, but pulses
+	 * its key whatever kind of button it is, so the
+	 * key is let go by the pulse scheduler after its
+	 * full width. The button shows as clicked until
+	 * settle() is called.
+	 */
+	public void pulse(simulationButton button, long touchNanos) {
+		this.touchNanos = touchNanos;
+		long start = System.nanoTime();
+		clickHandler(button, false, true);
+		latency.record(latencyStats.HANDLER, button.key, System.nanoTime() - start);
+	}
+
+	/**
+	 * @param button  a button pressed by pulse()
+	 * Shows the button as let go once its pulse is
+	 * over. No key event is sent, since the pulse
+	 * scheduler has already released the key. Does
+	 * nothing if another click has taken over since.
+	 */
+	public void settle(simulationButton button) {
+		if (clickedButton != button) {
+			return;
+		}
+		clickedButton = null;
+		setButtonState(button, button == activeButton ? simulationButton.ACTIVE : simulationButton.IDLE);
+	}
+
+	/**
+	 * @param button    the button that was interacted with
+	 * @param released  whether this was the end of the interaction
+	 * @param pulsed    whether to pulse the key of a hold button
+	 *                  rather than hold it down
+	 */
+	private void clickHandler(simulationButton button, boolean released, boolean pulsed) {
+		if (onTouch != null) {
+			onTouch.run();
+		}
+		// Handle the button that was clicked before
+		if(clickedButton != null){
+			liftKey(clickedButton.key);
+			setButtonState(clickedButton, simulationButton.IDLE);
+			clickedButton = null;
+		}
+		// Handle the previously-selected radio button
+		if(activeButton != null) {
+			if(button.isMomentary && !released){
+				// Newly-clicked button is a different radio button
+				setButtonState(activeButton, simulationButton.IDLE);
+			} else {
+				// Active radio button isn't clicked anymore
+				setButtonState(activeButton, simulationButton.ACTIVE);
+			}
+		}
+		if(!released) {
+			setButtonState(button, simulationButton.CLICKED);
+			clickedButton = button;
+			if(button.isMomentary){
+				activeButton = button;
+				pulseKey(button.key);
+			} else if(pulsed){
+				pulseKey(button.key);
+			} else {
+				pressKey(button.key);
+			}
+		}
+	}
+
+	/**
+	 * @param button  the button to change
+	 * @param state   the state the button is now in
+	 * Changes a button's state, and marks it for
+	 * repainting if that changed anything.
+	 */
+	private void setButtonState(simulationButton button, int state) {
+		int before = button.curState;
+		if (button.setState(state)) {
+			if (repaints != null) {
+				repaints.mark(button);
+			}
+			if (journal != null) {
+				journal.transition(button.key, before, state);
+			}
+		}
+	}
+
+	/**
+	 * @param key  the keyboard key to press
+	 * Queues a simulated key-down keyboard event
+	 * for the application that has OS-level focus.
+	 * The injector thread makes sure that the
+	 * application with focus is the simulation.
+	 */
+	protected void pressKey(int key){
+		injector.press(key, touchNanos);
+	}
+	
+	/**
+	 * @param key  the keyboard key to release
+	 * Queues a simulated key-up keyboard event
+	 * for the application that has OS-level focus.
+	 * Cancels any pulse still pending on the key.
+	 */
+	protected void liftKey(int key){
+		injector.release(key);
+	}
+
+	/**
+	 * @param key  the keyboard key to pulse
+	 * Queues a simulated key-down keyboard event,
+	 * followed by a key-up after a momentary delay.
+	 */
+	protected void pulseKey(int key){
+		injector.pulse(key, touchNanos);
+	}
+
+}
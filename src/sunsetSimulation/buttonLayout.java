@@ -0,0 +1,263 @@
+/**
+ * buttonLayout.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.event.KeyEvent;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * buttonLayout is the overlay's button layout,
+ * read from a plain text resource (assets/layout.txt)
+ * rather than compiled in. The file names the
+ * resolution it was designed at, then one button
+ * per line: an id, the KeyEvent key it sends, the
+ * prefix of its asset set, its style, and its
+ * bounds in design pixels.
+ * 
+ * Every bound is relative to the design size, so
+ * the whole layout scales to any screen; scaled
+ * rectangles are snapped edge by edge, so buttons
+ * that touch at the design size still touch.
+ * 
+ * Styles are "hold", held for as long as it is
+ * touched (idle and clicked assets), and "radio",
+ * one of a group that pulses its key when picked
+ * (idle, clicked and active assets).
+ */
+public class buttonLayout {
+
+	/**
+	 * One button in the layout.
+	 */
+	public static final class entry {
+		public final String id;
+		public final int key;
+		public final String assets;
+		public final boolean radio;
+		public final Rectangle bounds;
+
+		entry(String id, int key, String assets, boolean radio, Rectangle bounds) {
+			this.id = id;
+			this.key = key;
+			this.assets = assets;
+			this.radio = radio;
+			this.bounds = bounds;
+		}
+
+		/**
+		 * @param state  simulationButton.IDLE, CLICKED or ACTIVE
+		 * @return path of the asset for that state, or
+		 * null if the button has none
+		 */
+		public String asset(int state) {
+			if (state == simulationButton.ACTIVE && !radio) {
+				return null;
+			}
+			return assets + (state == simulationButton.IDLE ? "_idle.png"
+					: state == simulationButton.CLICKED ? "_clicked.png" : "_active.png");
+		}
+	}
+
+	private final int designWidth;
+	private final int designHeight;
+	private final List<entry> entries;
+
+	private buttonLayout(int designWidth, int designHeight, List<entry> entries) {
+		this.designWidth = designWidth;
+		this.designHeight = designHeight;
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * @param base  class whose resources hold the layout
+	 * @param path  path to the layout resource
+	 * @return the parsed layout
+	 */
+	public static buttonLayout load(Class<?> base, String path) throws IOException {
+		InputStream in = base.getResourceAsStream(path);
+		if (in == null) {
+			throw new IOException("Couldn't find layout: " + path);
+		}
+		try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+			return parse(reader, path);
+		}
+	}
+
+	/**
+	 * @param reader  the layout text
+	 * @param name    what to call the layout in errors
+	 * @return the parsed layout
+	 * Blank lines and lines starting with # are skipped.
+	 */
+	public static buttonLayout parse(Reader reader, String name) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		int width = 0;
+		int height = 0;
+		List<entry> entries = new ArrayList<entry>();
+		Set<String> ids = new LinkedHashSet<String>();
+		String line;
+		int number = 0;
+		while ((line = lines.readLine()) != null) {
+			number++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\\s+");
+			String where = name + " line " + number + ": ";
+			try {
+				if (fields[0].equals("design") && fields.length == 3) {
+					width = Integer.parseInt(fields[1]);
+					height = Integer.parseInt(fields[2]);
+					if (width <= 0 || height <= 0) {
+						throw new IOException(where + "design size must be positive");
+					}
+				} else if (fields.length == 8) {
+					if (width == 0) {
+						throw new IOException(where + "design size must come before the buttons");
+					}
+					if (!ids.add(fields[0])) {
+						throw new IOException(where + "duplicate button " + fields[0]);
+					}
+					boolean radio;
+					if (fields[3].equals("radio")) {
+						radio = true;
+					} else if (fields[3].equals("hold")) {
+						radio = false;
+					} else {
+						throw new IOException(where + "style must be hold or radio, not " + fields[3]);
+					}
+					Rectangle bounds = new Rectangle(Integer.parseInt(fields[4]), Integer.parseInt(fields[5]),
+							Integer.parseInt(fields[6]), Integer.parseInt(fields[7]));
+					if (bounds.width <= 0 || bounds.height <= 0
+							|| !new Rectangle(width, height).contains(bounds)) {
+						throw new IOException(where + "bounds fall outside the design size");
+					}
+					entries.add(new entry(fields[0], keyCode(fields[1], where), fields[2], radio, bounds));
+				} else {
+					throw new IOException(where + "expected a design size or a button");
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException(where + "bad number, " + e.getMessage());
+			}
+		}
+		if (entries.isEmpty()) {
+			throw new IOException(name + ": no buttons");
+		}
+		return new buttonLayout(width, height, entries);
+	}
+
+	private static int keyCode(String name, String where) throws IOException {
+		try {
+			return KeyEvent.class.getField(name).getInt(null);
+		} catch (NoSuchFieldException | IllegalAccessException e) {
+			throw new IOException(where + "unknown key " + name);
+		}
+	}
+
+	/**
+	 * @return the buttons, in layout order
+	 */
+	public List<entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return the size the layout was designed at
+	 */
+	public Dimension getDesignSize() {
+		return new Dimension(designWidth, designHeight);
+	}
+
+	/**
+	 * @return every key the layout's buttons send
+	 */
+	public int[] keys() {
+		int[] keys = new int[entries.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = entries.get(i).key;
+		}
+		return keys;
+	}
+
+	/**
+	 * @return path of every asset the layout uses,
+	 * each once
+	 */
+	public String[] assetPaths() {
+		Set<String> paths = new LinkedHashSet<String>();
+		for (entry button : entries) {
+			for (int state = simulationButton.IDLE; state <= simulationButton.ACTIVE; state++) {
+				String path = button.asset(state);
+				if (path != null) {
+					paths.add(path);
+				}
+			}
+		}
+		return paths.toArray(new String[paths.size()]);
+	}
+
+	/**
+	 * @param screen  size of the area to fill
+	 * @return the largest scale that fits the whole
+	 * design inside the area, keeping its proportions
+	 */
+	public double scaleToFit(Dimension screen) {
+		return Math.min(screen.getWidth() / designWidth, screen.getHeight() / designHeight);
+	}
+
+	/**
+	 * @param scale  layout scale
+	 * @return the size of the whole layout at that scale
+	 */
+	public Dimension size(double scale) {
+		return new Dimension(snap(designWidth, scale), snap(designHeight, scale));
+	}
+
+	/**
+	 * @param button  a button in this layout
+	 * @param scale   layout scale
+	 * @return the button's bounds at that scale
+	 */
+	public Rectangle bounds(entry button, double scale) {
+		Rectangle r = button.bounds;
+		int x = snap(r.x, scale);
+		int y = snap(r.y, scale);
+		return new Rectangle(x, y, snap(r.x + r.width, scale) - x, snap(r.y + r.height, scale) - y);
+	}
+
+	/**
+	 * @param length  a design-pixel coordinate or size
+	 * @param scale   layout scale
+	 * @return the nearest pixel at that scale
+	 */
+	public static int snap(int length, double scale) {
+		return (int)Math.round(length * scale);
+	}
+
+}
@@ -0,0 +1,204 @@
+/**
+ * clickStateMachine.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Timer;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * clickStateMachine sits between the buttons'
+ * mouse listeners and clickHandler, and thins out
+ * the burst of events a finger swiped across the
+ * buttons produces.
+ * 
+ * The first event after a quiet spell is passed
+ * on straight away. Events that follow within the
+ * same frame are held until the frame ends, and
+ * then reduced before being passed on:
+ *   A drag into a button and back out of it (or
+ *   out and back in) cancels out entirely.
+ *   A release directly followed by a press is
+ *   dropped, since clickHandler releases the old
+ *   button itself when the new one is pressed.
+ * Real presses and releases are never cancelled,
+ * so a quick tap always gets through. The end
+ * state, including which radio button is active,
+ * is the same as if every event had been passed
+ * on; only the intermediate key injections and
+ * repaints are skipped.
+ * 
+ * Only used on the EDT.
+ */
+public class clickStateMachine {
+
+	public final static int PRESS = 0;
+	public final static int RELEASE = 1;
+	public final static int ENTER = 2;
+	public final static int EXIT = 3;
+
+	/**
+	 * Receives the events that survive.
+	 */
+	public interface sink {
+		/**
+		 * @param button      the button that was interacted with
+		 * @param released    whether this was the end of the interaction
+		 * @param touchNanos  System.nanoTime() when the event arrived
+		 */
+		void click(simulationButton button, boolean released, long touchNanos);
+	}
+
+	private static class event {
+		final simulationButton button;
+		final int kind;
+		final long touchNanos;
+
+		event(simulationButton button, int kind, long touchNanos) {
+			this.button = button;
+			this.kind = kind;
+			this.touchNanos = touchNanos;
+		}
+
+		boolean isRelease() {
+			return kind == RELEASE || kind == EXIT;
+		}
+	}
+
+	private final sink sink;
+	private final Timer frame;
+	private final List<event> pending = new ArrayList<event>();
+	private inputRecorder recorder;
+	private boolean inFrame;
+	private long received;
+	private long delivered;
+
+	/**
+	 * @param sink         where surviving events go
+	 * @param frameMillis  how long to hold events for, or 0 if
+	 *                     the caller ends every frame itself
+	 *                     with endFrame(), EG on its own clock
+	 */
+	public clickStateMachine(sink sink, int frameMillis) {
+		this.sink = sink;
+		if (frameMillis > 0) {
+			frame = new Timer(frameMillis, new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent e) { endFrame(); }
+			});
+			frame.setRepeats(false);
+		} else {
+			frame = null;
+		}
+	}
+
+	/**
+	 * @param recorder  where to record every event offered, or null
+	 */
+	public void setRecorder(inputRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * @param button      the button that was interacted with
+	 * @param kind        PRESS, RELEASE, ENTER or EXIT
+	 * @param touchNanos  System.nanoTime() when the event arrived
+	 */
+	public void offer(simulationButton button, int kind, long touchNanos) {
+		received++;
+		if (recorder != null) {
+			recorder.record(button, kind, touchNanos);
+		}
+		if (!inFrame) {
+			inFrame = true;
+			restartFrame();
+			deliver(new event(button, kind, touchNanos));
+			return;
+		}
+		if (kind == ENTER || kind == EXIT) {
+			int opposite = kind == ENTER ? EXIT : ENTER;
+			for (int i = pending.size() - 1; i >= 0; i--) {
+				event earlier = pending.get(i);
+				if (earlier.button == button) {
+					if (earlier.kind == opposite) {
+						pending.remove(i);
+						return;
+					}
+					break;
+				}
+			}
+		}
+		pending.add(new event(button, kind, touchNanos));
+	}
+
+	/**
+	 * Passes on whatever survived the current frame.
+	 * Another frame starts if anything did, so a
+	 * continuing swipe keeps being coalesced.
+	 */
+	public void endFrame() {
+		if (pending.isEmpty()) {
+			inFrame = false;
+			return;
+		}
+		for (int i = 0; i < pending.size(); i++) {
+			event e = pending.get(i);
+			boolean replaced = i + 1 < pending.size() && !pending.get(i + 1).isRelease();
+			if (!(e.isRelease() && replaced)) {
+				deliver(e);
+			}
+		}
+		pending.clear();
+		restartFrame();
+	}
+
+	/**
+	 * @return whether a frame is under way, so that
+	 * events offered now are held until it ends
+	 */
+	public boolean isInFrame() {
+		return inFrame;
+	}
+
+	/**
+	 * @return events received from the listeners
+	 */
+	public long getReceived() {
+		return received;
+	}
+
+	/**
+	 * @return events passed on to clickHandler
+	 */
+	public long getDelivered() {
+		return delivered;
+	}
+
+	private void restartFrame() {
+		if (frame != null) {
+			frame.restart();
+		}
+	}
+
+	private void deliver(event e) {
+		delivered++;
+		sink.click(e.button, e.isRelease(), e.touchNanos);
+	}
+
+}
@@ -0,0 +1,109 @@
+/**
+ * controlDispatcher.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Timer;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * controlDispatcher carries out controlServer
+ * commands as touches would, through the overlay's
+ * clickStateMachine and buttonController.
+ * 
+ * PULSE and STAGE only press: the pulse scheduler
+ * lets the key go after its full width, and the
+ * button is shown let go once that is over. A
+ * release straight after the press would cut the
+ * pulse short. One timer does the letting go; only
+ * the latest pulse's button can still be showing
+ * clicked, since any later click takes over from
+ * it.
+ */
+public class controlDispatcher implements controlServer.sink {
+
+	private final Map<String, simulationButton> buttonsById;
+	private final clickStateMachine clicks;
+	private final buttonController controller;
+	private final inputInjector injector;
+	private final Runnable allKeysUp;
+	private final Timer settleTimer;
+	// The button waiting for settleTimer; only used on the EDT
+	private simulationButton settling;
+
+	/**
+	 * @param buttonsById  the buttons, by layout id
+	 * @param clicks       where presses and releases go
+	 * @param controller   the buttons' logic, for pulses
+	 * @param injector     the injector, for pulse widths
+	 * @param allKeysUp    lets go of every key, for UP
+	 */
+	public controlDispatcher(Map<String, simulationButton> buttonsById, clickStateMachine clicks,
+			final buttonController controller, inputInjector injector, Runnable allKeysUp) {
+		this.buttonsById = buttonsById;
+		this.clicks = clicks;
+		this.controller = controller;
+		this.injector = injector;
+		this.allKeysUp = allKeysUp;
+		settleTimer = new Timer(0, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				simulationButton button = settling;
+				settling = null;
+				if (button != null) {
+					controller.settle(button);
+				}
+			}
+		});
+		settleTimer.setRepeats(false);
+	}
+
+	/**
+	 * @param kind  controlServer.PRESS, RELEASE, PULSE, STAGE or UP
+	 * @param id    the button's layout id, or null for UP
+	 * Runs on the EDT.
+	 */
+	@Override
+	public void command(int kind, String id) {
+		long now = System.nanoTime();
+		if (kind == controlServer.UP) {
+			simulationButton clicked = controller.getClickedButton();
+			if (clicked != null) {
+				clicks.offer(clicked, clickStateMachine.RELEASE, now);
+			}
+			allKeysUp.run();
+			return;
+		}
+		simulationButton button = buttonsById.get(id);
+		if (kind == controlServer.PRESS) {
+			clicks.offer(button, clickStateMachine.PRESS, now);
+		} else if (kind == controlServer.RELEASE) {
+			clicks.offer(button, clickStateMachine.RELEASE, now);
+		} else {
+			// Touches held for the current frame go first, to keep the order
+			clicks.endFrame();
+			controller.pulse(button, now);
+			settling = button;
+			settleTimer.setInitialDelay((int)TimeUnit.NANOSECONDS.toMillis(
+					injector.getPulseWidth(button.key) + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+			settleTimer.restart();
+		}
+	}
+
+}
@@ -0,0 +1,385 @@
+/**
+ * controlServer.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * controlServer lets local clients, EG a docent's
+ * tablet bridge or an attract-mode script, drive
+ * the buttons. One selector thread serves every
+ * connection on 127.0.0.1. Commands are lines of
+ * text:
+ *   press <button>    hold a button down
+ *   release <button>  let it go
+ *   pulse <button>    press and release it
+ *   stage <button>    select a timeline stage
+ *   up                let go of everything
+ * where <button> is an id from the button layout.
+ * Each line is answered with "ok" once queued, or
+ * "error ..." if it makes no sense.
+ * 
+ * Queued commands are handed to the sink on the
+ * EDT, a few per turn, so touches waiting on the
+ * EDT always get in between them. When the queue
+ * is full the server stops reading sockets until
+ * the EDT catches up; clients that keep sending
+ * are held back by TCP itself, and nothing is
+ * dropped.
+ */
+public class controlServer implements Runnable {
+
+	public final static int PRESS = 0;
+	public final static int RELEASE = 1;
+	public final static int PULSE = 2;
+	public final static int STAGE = 3;
+	public final static int UP = 4;
+
+	private static final int queueSize = 64;
+	private static final int perTurn = 4;
+	private static final int maxLine = 128;
+
+	/**
+	 * Carries out commands. Called on the EDT.
+	 */
+	public interface sink {
+		/**
+		 * @param kind    PRESS, RELEASE, PULSE, STAGE or UP
+		 * @param button  the button's layout id, or null for UP
+		 */
+		void command(int kind, String button);
+	}
+
+	private static final class command {
+		final int kind;
+		final String button;
+
+		command(int kind, String button) {
+			this.kind = kind;
+			this.button = button;
+		}
+	}
+
+	/**
+	 * What one client has sent and not yet had
+	 * answered.
+	 */
+	private static final class connection {
+		final ByteBuffer in = ByteBuffer.allocate(maxLine);
+		final ArrayDeque<ByteBuffer> out = new ArrayDeque<ByteBuffer>();
+	}
+
+	private final sink sink;
+	private final Set<String> buttons;
+	private final Set<String> stages;
+	private final ArrayBlockingQueue<command> queue = new ArrayBlockingQueue<command>(queueSize);
+	private final AtomicBoolean draining = new AtomicBoolean();
+	private final Selector selector;
+	private final ServerSocketChannel server;
+	private final Runnable drain = new Runnable() {
+		@Override
+		public void run() { drain(); }
+	};
+	private volatile boolean paused;
+
+	/**
+	 * @param port     local port to listen on
+	 * @param buttons  ids of every button
+	 * @param stages   ids of the timeline stage buttons
+	 * @param sink     carries out the commands
+	 */
+	public controlServer(int port, Set<String> buttons, Set<String> stages, sink sink) throws IOException {
+		this.sink = sink;
+		this.buttons = buttons;
+		this.stages = stages;
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Starts serving on a thread of its own.
+	 */
+	public void start() {
+		Thread thread = new Thread(this, "Sunset Simulation control server");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return the port actually listened on
+	 */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	@Override
+	public void run() {
+		while (server.isOpen()) {
+			try {
+				selector.select();
+				if (paused && queue.remainingCapacity() > 0) {
+					resume();
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else {
+						if (key.isReadable()) {
+							read(key);
+						}
+						if (key.isValid() && key.isWritable()) {
+							write(key);
+						}
+					}
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		for (SelectionKey key : selector.keys()) {
+			close(key);
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops serving, and drops every client.
+	 */
+	public void stop() {
+		try {
+			server.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		selector.wakeup();
+	}
+
+	private void accept() throws IOException {
+		SocketChannel client = server.accept();
+		if (client == null) {
+			return;
+		}
+		client.configureBlocking(false);
+		client.register(selector, paused ? 0 : SelectionKey.OP_READ, new connection());
+	}
+
+	/**
+	 * @param key  a client with bytes waiting
+	 */
+	private void read(SelectionKey key) {
+		SocketChannel client = (SocketChannel)key.channel();
+		connection c = (connection)key.attachment();
+		try {
+			if (client.read(c.in) < 0) {
+				client.close();
+				return;
+			}
+		} catch (IOException e) {
+			close(key);
+			return;
+		}
+		process(key);
+	}
+
+	/**
+	 * @param key  a client
+	 * Queues every complete line the client has sent.
+	 * A line that finds the queue full stays in the
+	 * buffer, and reading pauses until there is room.
+	 */
+	private void process(SelectionKey key) {
+		connection c = (connection)key.attachment();
+		c.in.flip();
+		int start = c.in.position();
+		for (int i = start; i < c.in.limit(); i++) {
+			if (c.in.get(i) != '\n') {
+				continue;
+			}
+			String line = new String(c.in.array(), start, i - start, StandardCharsets.US_ASCII).trim();
+			String reply = parse(line);
+			if (reply == null) {
+				// Queue full: keep this line for later
+				setReading(false);
+				break;
+			}
+			reply(key, reply);
+			start = i + 1;
+		}
+		c.in.position(start);
+		c.in.compact();
+		if (!c.in.hasRemaining() && !paused) {
+			reply(key, "error line too long");
+			c.in.clear();
+		}
+	}
+
+	/**
+	 * @param line  one command
+	 * @return the reply, or null if the queue is full
+	 */
+	private String parse(String line) {
+		String[] words = line.split("\\s+");
+		int kind;
+		if (words[0].equals("press")) {
+			kind = PRESS;
+		} else if (words[0].equals("release")) {
+			kind = RELEASE;
+		} else if (words[0].equals("pulse")) {
+			kind = PULSE;
+		} else if (words[0].equals("stage")) {
+			kind = STAGE;
+		} else if (words[0].equals("up") && words.length == 1) {
+			kind = UP;
+		} else {
+			return "error unknown command " + line;
+		}
+		String button = null;
+		if (kind != UP) {
+			if (words.length != 2 || !buttons.contains(words[1])) {
+				return "error unknown button in " + line;
+			}
+			if (kind == STAGE && !stages.contains(words[1])) {
+				return "error not a stage: " + words[1];
+			}
+			button = words[1];
+		}
+		if (!queue.offer(new command(kind, button))) {
+			return null;
+		}
+		if (draining.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(drain);
+		}
+		return "ok";
+	}
+
+	private void reply(SelectionKey key, String reply) {
+		connection c = (connection)key.attachment();
+		c.out.add(ByteBuffer.wrap((reply + "\n").getBytes(StandardCharsets.US_ASCII)));
+		write(key);
+	}
+
+	private void write(SelectionKey key) {
+		connection c = (connection)key.attachment();
+		try {
+			while (!c.out.isEmpty()) {
+				ByteBuffer next = c.out.peek();
+				((SocketChannel)key.channel()).write(next);
+				if (next.hasRemaining()) {
+					break;
+				}
+				c.out.poll();
+			}
+		} catch (IOException e) {
+			close(key);
+			return;
+		}
+		int ops = key.interestOps();
+		key.interestOps(c.out.isEmpty() ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE);
+	}
+
+	private void close(SelectionKey key) {
+		try {
+			key.channel().close();
+		} catch (IOException e) {
+			// already gone
+		}
+	}
+
+	/**
+	 * Starts reading again, beginning with the lines
+	 * that were left waiting when the queue filled.
+	 */
+	private void resume() {
+		setReading(true);
+		for (SelectionKey key : selector.keys()) {
+			if (paused) {
+				return;
+			}
+			if (key.isValid() && key.attachment() instanceof connection) {
+				process(key);
+			}
+		}
+	}
+
+	/**
+	 * @param reading  whether to read from clients
+	 * Runs on the selector thread.
+	 */
+	private void setReading(boolean reading) {
+		paused = !reading;
+		for (SelectionKey key : selector.keys()) {
+			if (key.isValid() && key.channel() instanceof SocketChannel) {
+				int ops = key.interestOps();
+				key.interestOps(reading ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ);
+			}
+		}
+	}
+
+	/**
+	 * Hands a few queued commands to the sink, and
+	 * comes back for more on a later EDT turn, so
+	 * touches queued meanwhile come first.
+	 */
+	private void drain() {
+		for (int i = 0; i < perTurn; i++) {
+			command next = queue.poll();
+			if (next == null) {
+				break;
+			}
+			sink.command(next.kind, next.button);
+		}
+		if (paused) {
+			selector.wakeup();
+		}
+		if (!queue.isEmpty()) {
+			SwingUtilities.invokeLater(drain);
+			return;
+		}
+		draining.set(false);
+		if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(drain);
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+/**
+ * dirtyRegions.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.EventQueue;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JComponent;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * dirtyRegions collects the bounds of buttons
+ * whose state actually changed, and repaints only
+ * those parts of the overlay. Everything marked
+ * during one pass of the event queue is merged
+ * into as few rectangles as possible and flushed
+ * together, once, at the end of that pass.
+ * 
+ * The overlay window is per-pixel translucent, so
+ * every repainted pixel costs the compositor too;
+ * the number of pixels each flush repainted is
+ * kept for checking that against the full frame.
+ * 
+ * Only used on the EDT.
+ */
+public class dirtyRegions {
+
+	private final JComponent target;
+	private final List<Rectangle> pending = new ArrayList<Rectangle>();
+	private long lastPixels;
+	private long totalPixels;
+	private long flushes;
+
+	private final Runnable flusher = new Runnable() {
+		@Override
+		public void run() { flush(); }
+	};
+
+	/**
+	 * @param target  the panel the marked components live in
+	 */
+	public dirtyRegions(JComponent target) {
+		this.target = target;
+	}
+
+	/**
+	 * @param component  a child of target that needs repainting
+	 */
+	public void mark(JComponent component) {
+		if (pending.isEmpty()) {
+			EventQueue.invokeLater(flusher);
+		}
+		Rectangle r = component.getBounds();
+		// Absorb anything the new region overlaps or touches
+		for (int i = pending.size() - 1; i >= 0; i--) {
+			Rectangle other = pending.get(i);
+			if (mergeable(r, other)) {
+				r = r.union(other);
+				pending.remove(i);
+				i = pending.size();
+			}
+		}
+		pending.add(r);
+	}
+
+	/**
+	 * Repaints everything marked so far.
+	 */
+	public void flush() {
+		long pixels = 0;
+		for (Rectangle r : pending) {
+			target.repaint(r);
+			pixels += (long)r.width * r.height;
+		}
+		if (!pending.isEmpty()) {
+			lastPixels = pixels;
+			totalPixels += pixels;
+			flushes++;
+		}
+		pending.clear();
+	}
+
+	/**
+	 * @return pixels repainted by the most recent flush
+	 */
+	public long getLastPixels() {
+		return lastPixels;
+	}
+
+	/**
+	 * @return pixels repainted by every flush so far
+	 */
+	public long getTotalPixels() {
+		return totalPixels;
+	}
+
+	/**
+	 * @return number of flushes that repainted anything
+	 */
+	public long getFlushes() {
+		return flushes;
+	}
+
+	/**
+	 * @return whether the two rectangles can be repainted as
+	 * their union without repainting anything in between
+	 */
+	private static boolean mergeable(Rectangle a, Rectangle b) {
+		if (a.y == b.y && a.height == b.height) {
+			return a.x <= b.x + b.width && b.x <= a.x + a.width;
+		}
+		if (a.x == b.x && a.width == b.width) {
+			return a.y <= b.y + b.height && b.y <= a.y + a.height;
+		}
+		return a.contains(b) || b.contains(a);
+	}
+
+}
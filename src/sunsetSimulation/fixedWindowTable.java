@@ -0,0 +1,103 @@
+/**
+ * fixedWindowTable.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * fixedWindowTable is a windowTable over a fixed
+ * list of pretend windows, for running the overlay's
+ * window handling where there is no user32. Window
+ * handles are the titles' positions, counting from
+ * one, and focus moves whenever it is asked to.
+ * Windows belong to no process until given one.
+ */
+public class fixedWindowTable implements windowTable {
+
+	private final String[] titles;
+	private final long[] processIds;
+	private final AtomicInteger focusChanges = new AtomicInteger();
+	private volatile long foreground;
+
+	/**
+	 * @param titles  titles of the windows, in z-order
+	 */
+	public fixedWindowTable(String... titles) {
+		this.titles = titles.clone();
+		processIds = new long[titles.length];
+	}
+
+	/**
+	 * @param hWnd       handle of the window
+	 * @param processId  id of the pretend process that owns it
+	 */
+	public void setProcessId(long hWnd, long processId) {
+		processIds[(int)hWnd - 1] = processId;
+	}
+
+	@Override
+	public void enumerate(visitor v) {
+		for (int i = 0; i < titles.length; i++) {
+			if (!v.visit(i + 1)) {
+				return;
+			}
+		}
+	}
+
+	@Override
+	public boolean isWindow(long hWnd) {
+		return hWnd >= 1 && hWnd <= titles.length;
+	}
+
+	@Override
+	public boolean titleMatches(long hWnd, String windowName, boolean starting) {
+		if (!isWindow(hWnd)) {
+			return false;
+		}
+		String title = titles[(int)hWnd - 1];
+		return starting ? title.startsWith(windowName) : title.contains(windowName);
+	}
+
+	@Override
+	public long processId(long hWnd) {
+		return isWindow(hWnd) ? processIds[(int)hWnd - 1] : 0;
+	}
+
+	@Override
+	public long getForeground() {
+		return foreground;
+	}
+
+	@Override
+	public boolean setForeground(long hWnd) {
+		if (!isWindow(hWnd)) {
+			return false;
+		}
+		if (foreground != hWnd) {
+			foreground = hWnd;
+			focusChanges.incrementAndGet();
+		}
+		return true;
+	}
+
+	/**
+	 * @return how many times focus has moved
+	 */
+	public int getFocusChanges() {
+		return focusChanges.get();
+	}
+
+}
@@ -0,0 +1,43 @@
+/**
+ * foregroundEventSource.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * foregroundEventSource tells foregroundWatchdog
+ * whenever the OS-level foreground window changes.
+ * The Windows implementation is
+ * user32ForegroundEventSource.
+ */
+public interface foregroundEventSource {
+
+	/**
+	 * Notified of each foreground change, on
+	 * whatever thread the source delivers on.
+	 */
+	interface listener {
+		/**
+		 * @param hWnd  handle of the new foreground window, or 0
+		 */
+		void foregroundChanged(long hWnd);
+	}
+
+	/**
+	 * @param l  listener to notify from now on
+	 * Starts delivering notifications. Must not block.
+	 */
+	void start(listener l);
+
+}
@@ -0,0 +1,179 @@
+/**
+ * foregroundWatchdog.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * foregroundWatchdog keeps the exhibit in its
+ * kiosk state: overlay on top, simulation with
+ * focus, no keys held down.
+ * 
+ * It reacts as soon as a foreign window takes the
+ * foreground, and also runs the full recovery after
+ * every idle period without input, as a backstop
+ * for anything the foreground events miss. All of
+ * its work runs on its own scheduler thread; the
+ * EDT is only ever handed work, never blocked.
+ */
+public class foregroundWatchdog {
+
+	/**
+	 * What the watchdog recovers. Called on
+	 * the watchdog thread.
+	 */
+	public interface target {
+		/**
+		 * @param hWnd  handle of a window
+		 * @return whether the window is the overlay or the simulation
+		 */
+		boolean isOurs(long hWnd);
+
+		/**
+		 * @param raised  run once the overlay is up
+		 * Un-minimizes the overlay, then brings it to
+		 * the foreground, in that order, on the EDT.
+		 * Must not block.
+		 */
+		void raiseOverlay(Runnable raised);
+
+		/**
+		 * Gives the simulation focus, under the overlay.
+		 */
+		void focusSimulation();
+
+		/**
+		 * Releases any key left down.
+		 */
+		void releaseKeys();
+	}
+
+	// Time between raising the overlay and handing focus back to the simulation
+	private static final long focusSettleMillis = 10;
+	// Delay before reacting to a foreground change, so bursts collapse into one
+	private static final long foregroundDebounceMillis = 200;
+
+	private final target target;
+	private final foregroundEventSource source;
+	private final long idleNanos;
+	private final ScheduledExecutorService scheduler;
+	private final AtomicBoolean recoveryPending = new AtomicBoolean();
+	private volatile long lastInput;
+
+	/**
+	 * @param target     what to recover
+	 * @param source     foreground change notifications, or null to only poll
+	 * @param idleNanos  time without input before the full recovery runs
+	 */
+	public foregroundWatchdog(target target, foregroundEventSource source, long idleNanos) {
+		this.target = target;
+		this.source = source;
+		this.idleNanos = idleNanos;
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Sunset Simulation watchdog");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Starts listening for foreground changes
+	 * and starts the idle backstop.
+	 */
+	public void start() {
+		lastInput = System.nanoTime();
+		if (source != null) {
+			source.start(new foregroundEventSource.listener() {
+				@Override
+				public void foregroundChanged(long hWnd) { onForegroundChanged(hWnd); }
+			});
+		}
+		scheduler.schedule(backstop, idleNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records user input, pushing the next idle
+	 * recovery back by a full idle period.
+	 */
+	public void touch() {
+		lastInput = System.nanoTime();
+	}
+
+	private final Runnable backstop = new Runnable() {
+		@Override
+		public void run() {
+			long idle = System.nanoTime() - lastInput;
+			if (idle >= idleNanos) {
+				recover(true);
+				scheduler.schedule(this, idleNanos, TimeUnit.NANOSECONDS);
+			} else {
+				scheduler.schedule(this, idleNanos - idle, TimeUnit.NANOSECONDS);
+			}
+		}
+	};
+
+	private void onForegroundChanged(long hWnd) {
+		if (!target.isOurs(hWnd) && recoveryPending.compareAndSet(false, true)) {
+			scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					recoveryPending.set(false);
+					recover(System.nanoTime() - lastInput >= idleNanos);
+				}
+			}, foregroundDebounceMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * @param idle  whether the exhibit is idle, so
+	 *              keys can safely be released
+	 * Raises the overlay, then hands focus back
+	 * to the simulation once the overlay has
+	 * settled, without sleeping on any thread.
+	 */
+	private void recover(final boolean idle) {
+		final Runnable refocus = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					target.focusSimulation();
+					if (idle) {
+						target.releaseKeys();
+					}
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		try {
+			target.raiseOverlay(new Runnable() {
+				@Override
+				public void run() { scheduler.schedule(refocus, focusSettleMillis, TimeUnit.MILLISECONDS); }
+			});
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			scheduler.schedule(refocus, focusSettleMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ * frameChecksumProbe.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.AWTException;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * frameChecksumProbe catches a simulation that
+ * still answers messages but has stopped drawing.
+ * It captures a small patch of the screen, at most
+ * maxPixels of it, and reports the simulation
+ * unresponsive once the patch hasn't changed for
+ * staleNanos.
+ * 
+ * The patch must be somewhere the simulation is
+ * always moving, and clear of the buttons, so it
+ * is chosen with
+ * -DsunsetSimulation.frameProbe=x,y,width,height
+ */
+public class frameChecksumProbe implements healthProbe {
+
+	private static final int maxPixels = 1024;
+
+	private final Rectangle region;
+	private final long staleNanos;
+	private Robot robot;
+	private long lastChecksum;
+	private long changedNanos;
+
+	/**
+	 * @param region      screen region to watch, trimmed to maxPixels
+	 * @param staleNanos  how long the region may stay the same
+	 */
+	public frameChecksumProbe(Rectangle region, long staleNanos) {
+		Rectangle trimmed = new Rectangle(region);
+		if ((long)trimmed.width * trimmed.height > maxPixels) {
+			double shrink = Math.sqrt(maxPixels / ((double)trimmed.width * trimmed.height));
+			int w = Math.max(1, (int)(trimmed.width * shrink));
+			int h = Math.max(1, Math.min(maxPixels / w, (int)(trimmed.height * shrink)));
+			trimmed = new Rectangle((int)trimmed.getCenterX() - w / 2, (int)trimmed.getCenterY() - h / 2, w, h);
+		}
+		this.region = trimmed;
+		this.staleNanos = staleNanos;
+	}
+
+	/**
+	 * @param spec        "x,y,width,height", or null
+	 * @param staleNanos  how long the region may stay the same
+	 * @return the probe, or null if there is no valid spec
+	 */
+	public static frameChecksumProbe parse(String spec, long staleNanos) {
+		if (spec == null) {
+			return null;
+		}
+		String[] parts = spec.split(",");
+		try {
+			if (parts.length == 4) {
+				return new frameChecksumProbe(new Rectangle(Integer.parseInt(parts[0].trim()),
+						Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim()),
+						Integer.parseInt(parts[3].trim())), staleNanos);
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		System.err.println("Ignoring frame probe region " + spec + ", expected x,y,width,height");
+		return null;
+	}
+
+	@Override
+	public String name() {
+		return "frame";
+	}
+
+	@Override
+	public void reset() {
+		changedNanos = 0;
+	}
+
+	@Override
+	public int check(long hWnd, long budgetNanos) {
+		if (robot == null) {
+			try {
+				robot = new Robot();
+			} catch (AWTException e) {
+				return UNKNOWN;
+			}
+		}
+		long now = System.nanoTime();
+		BufferedImage patch = robot.createScreenCapture(region);
+		long checksum = 17;
+		for (int y = 0; y < patch.getHeight(); y++) {
+			for (int x = 0; x < patch.getWidth(); x++) {
+				checksum = checksum * 31 + patch.getRGB(x, y);
+			}
+		}
+		if (changedNanos == 0 || checksum != lastChecksum) {
+			lastChecksum = checksum;
+			changedNanos = now;
+			return HEALTHY;
+		}
+		return now - changedNanos >= staleNanos ? UNRESPONSIVE : HEALTHY;
+	}
+
+	/**
+	 * @return the region actually captured
+	 */
+	public Rectangle getRegion() {
+		return new Rectangle(region);
+	}
+
+}
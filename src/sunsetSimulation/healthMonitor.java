@@ -0,0 +1,176 @@
+/**
+ * healthMonitor.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * healthMonitor decides when a simulation that is
+ * still running has stopped responding, and has
+ * it restarted. Every period it runs each
+ * healthProbe in turn on its own thread, while the
+ * simulation's window is up.
+ * 
+ * A probe that reports the simulation unresponsive
+ * failuresToRestart times in a row triggers a
+ * restart. Each probe is timed against budgetNanos;
+ * one that overruns maxOverruns times in a row is
+ * costing the kiosk more than it saves, and is
+ * dropped.
+ */
+public class healthMonitor {
+
+	private static final int failuresToRestart = 5;
+	private static final int maxOverruns = 3;
+
+	/**
+	 * What the monitor watches and restarts.
+	 */
+	public interface target {
+		/**
+		 * @return whether the simulation's window is up
+		 */
+		boolean isUp();
+
+		/**
+		 * @return the simulation's window, or 0 if unknown
+		 */
+		long window();
+
+		/**
+		 * Kills the simulation, to be launched again.
+		 */
+		void restart();
+	}
+
+	private final target target;
+	private final healthProbe[] probes;
+	private final int[] failures;
+	private final int[] overruns;
+	private final long budgetNanos;
+	private final long periodNanos;
+	private final ScheduledExecutorService scheduler;
+	private boolean wasUp;
+	private volatile int restarts;
+
+	/**
+	 * @param target       the simulation
+	 * @param probes       the checks to run
+	 * @param budgetNanos  how long each probe may take
+	 * @param periodNanos  how often to run the probes
+	 */
+	public healthMonitor(target target, List<healthProbe> probes, long budgetNanos, long periodNanos) {
+		this.target = target;
+		this.probes = probes.toArray(new healthProbe[probes.size()]);
+		this.failures = new int[this.probes.length];
+		this.overruns = new int[this.probes.length];
+		this.budgetNanos = budgetNanos;
+		this.periodNanos = periodNanos;
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Sunset Simulation health monitor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Starts probing, if there is anything to probe with.
+	 */
+	public void start() {
+		if (probes.length == 0) {
+			return;
+		}
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() { probe(); }
+		}, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Stops probing.
+	 */
+	public void stop() {
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * @return how many restarts the monitor has asked for
+	 */
+	public int getRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * Runs one round of probes. Runs on the monitor's
+	 * thread.
+	 */
+	void probe() {
+		if (!target.isUp()) {
+			wasUp = false;
+			return;
+		}
+		if (!wasUp) {
+			// A new process: nothing earlier probes saw applies
+			wasUp = true;
+			for (int i = 0; i < probes.length; i++) {
+				if (probes[i] != null) {
+					probes[i].reset();
+				}
+				failures[i] = 0;
+			}
+		}
+		long hWnd = target.window();
+		for (int i = 0; i < probes.length; i++) {
+			healthProbe probe = probes[i];
+			if (probe == null) {
+				continue;
+			}
+			long began = System.nanoTime();
+			int result = probe.check(hWnd, budgetNanos);
+			long cost = System.nanoTime() - began;
+			if (cost > budgetNanos) {
+				if (++overruns[i] >= maxOverruns) {
+					System.err.println("Health probe " + probe.name() + " took "
+							+ TimeUnit.NANOSECONDS.toMillis(cost) + " ms, over budget, dropping it");
+					probes[i] = null;
+					continue;
+				}
+			} else {
+				overruns[i] = 0;
+			}
+			if (result == healthProbe.UNRESPONSIVE) {
+				failures[i]++;
+			} else if (result == healthProbe.HEALTHY) {
+				failures[i] = 0;
+			}
+			if (failures[i] >= failuresToRestart) {
+				System.err.println("Simulation unresponsive to " + probe.name() + " probe, restarting");
+				restarts++;
+				wasUp = false;
+				target.restart();
+				return;
+			}
+		}
+	}
+
+}
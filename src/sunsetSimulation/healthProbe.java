@@ -0,0 +1,53 @@
+/**
+ * healthProbe.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * healthProbe is one cheap check of whether the
+ * simulation is still responding. healthMonitor
+ * runs every probe on its own schedule, holds each
+ * to a cost budget, and decides on a restart.
+ * 
+ * The Windows probes are user32HungProbe and
+ * user32PingProbe; frameChecksumProbe watches the
+ * screen, so it works wherever a Robot does.
+ */
+public interface healthProbe {
+
+	public final static int HEALTHY = 0;
+	public final static int UNRESPONSIVE = 1;
+	public final static int UNKNOWN = 2;
+
+	/**
+	 * @return a short name for logging
+	 */
+	String name();
+
+	/**
+	 * Forgets what earlier checks saw, when a new
+	 * simulation process starts.
+	 */
+	void reset();
+
+	/**
+	 * @param hWnd         the simulation's window, or 0 if unknown
+	 * @param budgetNanos  how long the check may take
+	 * @return HEALTHY, UNRESPONSIVE, or UNKNOWN if the
+	 * probe can't tell this time
+	 */
+	int check(long hWnd, long budgetNanos);
+
+}
@@ -0,0 +1,149 @@
+/**
+ * injectorThread.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * injectorThread is the one thread that delivers
+ * every inputInjector's key events. With several
+ * exhibit stations there is one injector each, and
+ * the thread takes turns between them, taking at
+ * most perTurn commands from one before moving on,
+ * so a station flooded with touches holds the
+ * others up by one batch at most.
+ * 
+ * Between turns it sleeps until a command arrives
+ * or a pulse release is due, and spins for the
+ * last stretch before a release, as the pulse
+ * schedulers ask.
+ * 
+ * An injector that throws anything, Errors
+ * included, is reported and dropped, so one
+ * station's fault can't stop the others' keys.
+ * (A backend failing to send is not such a
+ * fault; inputInjector handles that itself.)
+ */
+public class injectorThread implements Runnable {
+
+	private static final int perTurn = 16;
+
+	private final Thread thread;
+	private volatile inputInjector[] injectors = new inputInjector[0];
+	private boolean started;
+
+	public injectorThread() {
+		thread = new Thread(this, "Sunset Simulation key injector");
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * @param injector  an injector to serve from now on
+	 * Starts the thread with the first injector.
+	 */
+	public synchronized void add(inputInjector injector) {
+		inputInjector[] grown = Arrays.copyOf(injectors, injectors.length + 1);
+		grown[injectors.length] = injector;
+		injectors = grown;
+		if (!started) {
+			started = true;
+			thread.start();
+		} else {
+			wake();
+		}
+	}
+
+	/**
+	 * @param injector  an injector to stop serving
+	 * @param e         what it threw
+	 */
+	private synchronized void drop(inputInjector injector, Throwable e) {
+		System.err.println("Key injector failed, dropping it");
+		e.printStackTrace();
+		inputInjector[] all = injectors;
+		for (int i = 0; i < all.length; i++) {
+			if (all[i] == injector) {
+				inputInjector[] shrunk = new inputInjector[all.length - 1];
+				System.arraycopy(all, 0, shrunk, 0, i);
+				System.arraycopy(all, i + 1, shrunk, i, all.length - i - 1);
+				injectors = shrunk;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Wakes the thread, because a command was queued.
+	 */
+	public void wake() {
+		LockSupport.unpark(thread);
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			inputInjector[] all = injectors;
+			boolean more = false;
+			for (inputInjector injector : all) {
+				try {
+					more |= injector.turn(perTurn);
+				} catch (Throwable e) {
+					drop(injector, e);
+				}
+			}
+			if (more) {
+				continue;
+			}
+			all = injectors;
+			long now = System.nanoTime();
+			long wait = Long.MAX_VALUE;
+			long spin = 0;
+			for (inputInjector injector : all) {
+				try {
+					wait = Math.min(wait, injector.nanosUntilNext(now));
+					spin = Math.max(spin, injector.getSpinNanos());
+				} catch (Throwable e) {
+					drop(injector, e);
+				}
+			}
+			if (wait == Long.MAX_VALUE) {
+				LockSupport.park(this);
+			} else if (wait > spin) {
+				LockSupport.parkNanos(this, wait - spin);
+			} else {
+				long deadline = System.nanoTime() + wait;
+				while (!anyQueued(all) && deadline - System.nanoTime() > 0) {
+					Thread.onSpinWait();
+				}
+			}
+		}
+	}
+
+	private boolean anyQueued(inputInjector[] all) {
+		for (inputInjector injector : all) {
+			try {
+				if (injector.hasQueued()) {
+					return true;
+				}
+			} catch (Throwable e) {
+				drop(injector, e);
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,392 @@
+/**
+ * inputInjector.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * inputInjector fakes keyboard events for one
+ * simulation, on an injectorThread. Several
+ * injectors can share one thread, one per
+ * exhibit station; each keeps its own queue,
+ * pulses and pressed keys, and the thread takes
+ * turns between them.
+ * 
+ * The overlay hands it press/release commands
+ * through a lock-free queue and returns to
+ * painting straight away, so a slow focus change
+ * or a slow native call never holds up the EDT.
+ * Commands are injected in the order they were
+ * submitted, and each one is stamped with the
+ * time it actually reached the OS. A batch the
+ * backend fails to send is dropped: nothing in it
+ * counts as pressed, timed or journalled, and
+ * its commands are marked as failed.
+ * 
+ * Everything waiting in the queue when the thread
+ * wakes up is delivered to the keyInjector as one
+ * batch, so backends that can send several events
+ * per native call only pay for one.
+ * 
+ * Momentary (pulsed) keys are released by this
+ * same thread once their pulse width is up,
+ * which keeps the release ordered with respect
+ * to every other command. keyPulseScheduler
+ * decides when that is.
+ */
+public class inputInjector {
+
+	public final static int PRESS = 0;
+	public final static int RELEASE = 1;
+	public final static int PULSE = 2;
+
+	/**
+	 * A single queued key event, or a set of
+	 * key releases that belong together.
+	 */
+	public static class command {
+		public final int type;
+		public final int key;
+		public final int[] keys;
+		public final long widthNanos;
+		public final long touchNanos;
+		public final long submittedNanos;
+		private volatile boolean failed;
+		private volatile long completedNanos;
+
+		command(int type, int key, int[] keys, long widthNanos, long touchNanos) {
+			this.type = type;
+			this.key = key;
+			this.keys = keys;
+			this.widthNanos = widthNanos;
+			this.touchNanos = touchNanos;
+			this.submittedNanos = System.nanoTime();
+		}
+
+		/**
+		 * @return whether the event has been handed to the
+		 * OS, or given up on because that failed
+		 */
+		public boolean isDone() {
+			return completedNanos != 0;
+		}
+
+		/**
+		 * @return whether the event was given up on
+		 */
+		public boolean isFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return System.nanoTime() when the event was
+		 * handed to the OS, or 0 if it is still queued
+		 */
+		public long getCompletedNanos() {
+			return completedNanos;
+		}
+	}
+
+	private final ConcurrentLinkedQueue<command> queue = new ConcurrentLinkedQueue<command>();
+	// Everything below is only touched by the injector thread.
+	private final keyPulseScheduler pulses;
+	private final keyInjector backend;
+	private final pressedKeySet pressed;
+	private final latencyStats stats;
+	private final interactionJournal journal;
+	private final Runnable beforeInject;
+	private final injectorThread thread;
+	private int[] batchKeys = new int[32];
+	private boolean[] batchDown = new boolean[32];
+	private int batchSize;
+	private command[] batchCommands = new command[32];
+	private int batchCommandCount;
+	private volatile long sendFailures;
+
+	/**
+	 * @param backend       delivers the key events to the OS
+	 * @param pressed       kept up to date with the keys
+	 *                      that have been delivered as down
+	 * @param pulses        times momentary key presses
+	 * @param stats         where to record queueing, focus,
+	 *                      injection and pulse times, or null
+	 * @param journal       where to record touch-to-key
+	 *                      latency per interaction, or null
+	 * @param beforeInject  run on the injector thread before
+	 *                      each batch of key events, EG to make
+	 *                      sure the simulation has focus
+	 * Runs on a thread of its own.
+	 */
+	public inputInjector(keyInjector backend, pressedKeySet pressed, keyPulseScheduler pulses,
+			latencyStats stats, interactionJournal journal, Runnable beforeInject) {
+		this(backend, pressed, pulses, stats, journal, beforeInject, new injectorThread());
+	}
+
+	/**
+	 * @param backend       delivers the key events to the OS
+	 * @param pressed       kept up to date with the keys
+	 *                      that have been delivered as down
+	 * @param pulses        times momentary key presses
+	 * @param stats         where to record queueing, focus,
+	 *                      injection and pulse times, or null
+	 * @param journal       where to record touch-to-key
+	 *                      latency per interaction, or null
+	 * @param beforeInject  run on the injector thread before
+	 *                      each batch of key events, EG to make
+	 *                      sure the simulation has focus
+	 * @param thread        the thread to share with other injectors
+	 */
+	public inputInjector(keyInjector backend, pressedKeySet pressed, keyPulseScheduler pulses,
+			latencyStats stats, interactionJournal journal, Runnable beforeInject, injectorThread thread) {
+		this.backend = backend;
+		this.pressed = pressed;
+		this.pulses = pulses;
+		this.stats = stats;
+		this.journal = journal;
+		this.beforeInject = beforeInject;
+		this.thread = thread;
+		thread.add(this);
+	}
+
+	/**
+	 * @param key  the keyboard key to press
+	 * @return the queued command
+	 */
+	public command press(int key) {
+		return press(key, 0);
+	}
+
+	/**
+	 * @param key         the keyboard key to press
+	 * @param touchNanos  System.nanoTime() of the touch that
+	 *                    caused this, or 0
+	 * @return the queued command
+	 */
+	public command press(int key, long touchNanos) {
+		return submit(new command(PRESS, key, null, 0, touchNanos));
+	}
+
+	/**
+	 * @param key  the keyboard key to release
+	 * @return the queued command
+	 * Also cancels any pending pulse release
+	 * for the same key.
+	 */
+	public command release(int key) {
+		return submit(new command(RELEASE, key, null, 0, 0));
+	}
+
+	/**
+	 * @param keys  the keyboard keys to release
+	 * @return the queued command
+	 * Releases every key in one batch, cancelling
+	 * any pending pulse releases for them.
+	 */
+	public command releaseAll(int[] keys) {
+		return submit(new command(RELEASE, 0, keys.clone(), 0, 0));
+	}
+
+	/**
+	 * @param key         the keyboard key to pulse
+	 * @param touchNanos  System.nanoTime() of the touch that
+	 *                    caused this, or 0
+	 * @return the queued command, completed once the key is down
+	 * Holds the key for the pulse width the
+	 * scheduler has for it.
+	 */
+	public command pulse(int key, long touchNanos) {
+		return submit(new command(PULSE, key, null, pulses.getWidth(key), touchNanos));
+	}
+
+	/**
+	 * @param key  the keyboard key
+	 * @return how long a pulse of the key lasts
+	 */
+	public long getPulseWidth(int key) {
+		return pulses.getWidth(key);
+	}
+
+	private command submit(command c) {
+		queue.offer(c);
+		thread.wake();
+		return c;
+	}
+
+	/**
+	 * @param max  most commands to take this turn
+	 * @return whether commands are still queued
+	 * Takes up to max queued commands and any pulse
+	 * releases that are due, and delivers them as
+	 * one batch. Runs on the injector thread.
+	 */
+	boolean turn(int max) {
+		command c;
+		for (int i = 0; i < max && (c = queue.poll()) != null; i++) {
+			queueCommand(c);
+		}
+		long now = System.nanoTime();
+		int due;
+		while ((due = pulses.takeDue(now)) >= 0) {
+			queueEvent(due, false);
+		}
+		flush();
+		return !queue.isEmpty();
+	}
+
+	/**
+	 * @return number of batches the backend failed to send
+	 */
+	public long getSendFailures() {
+		return sendFailures;
+	}
+
+	/**
+	 * @return whether any commands are queued
+	 */
+	boolean hasQueued() {
+		return !queue.isEmpty();
+	}
+
+	/**
+	 * @param now  System.nanoTime()
+	 * @return nanoseconds until the next pulse release
+	 * is due, or Long.MAX_VALUE if there is none
+	 */
+	long nanosUntilNext(long now) {
+		return pulses.nanosUntilNext(now);
+	}
+
+	/**
+	 * @return how close to a pulse release the thread
+	 * should spin rather than sleep
+	 */
+	long getSpinNanos() {
+		return pulses.getSpinNanos();
+	}
+
+	private void queueCommand(command c) {
+		if (c.type == PRESS) {
+			queueEvent(c.key, true);
+		} else if (c.type == RELEASE) {
+			if (c.keys == null) {
+				pulses.cancel(c.key);
+				queueEvent(c.key, false);
+			} else {
+				for (int key : c.keys) {
+					pulses.cancel(key);
+					queueEvent(key, false);
+				}
+			}
+		} else {
+			// A key already mid-pulse is held longer, not pressed again
+			if (!pulses.isPending(c.key)) {
+				queueEvent(c.key, true);
+			}
+			pulses.start(c.key, c.widthNanos, System.nanoTime());
+		}
+		if (batchCommandCount == batchCommands.length) {
+			command[] grown = new command[batchCommands.length * 2];
+			System.arraycopy(batchCommands, 0, grown, 0, batchCommandCount);
+			batchCommands = grown;
+		}
+		batchCommands[batchCommandCount++] = c;
+	}
+
+	private void queueEvent(int key, boolean down) {
+		if (batchSize == batchKeys.length) {
+			int[] grownKeys = new int[batchKeys.length * 2];
+			boolean[] grownDown = new boolean[batchDown.length * 2];
+			System.arraycopy(batchKeys, 0, grownKeys, 0, batchSize);
+			System.arraycopy(batchDown, 0, grownDown, 0, batchSize);
+			batchKeys = grownKeys;
+			batchDown = grownDown;
+		}
+		batchKeys[batchSize] = key;
+		batchDown[batchSize] = down;
+		batchSize++;
+	}
+
+	/**
+	 * Delivers the current batch, if there is one,
+	 * and stamps the commands that were in it.
+	 */
+	private void flush() {
+		long start = System.nanoTime();
+		long focused = start;
+		if (batchSize > 0) {
+			try {
+				beforeInject.run();
+				focused = System.nanoTime();
+				backend.send(batchKeys, batchDown, batchSize);
+			} catch (Throwable e) {
+				// The thread is shared, so nothing a station's backend throws may end it
+				e.printStackTrace();
+				dropBatch();
+				return;
+			}
+		}
+		long done = System.nanoTime();
+		for (int i = 0; i < batchSize; i++) {
+			pressed.set(batchKeys[i], batchDown[i]);
+			long width = pulses.delivered(batchKeys[i], batchDown[i], done);
+			if (width >= 0 && stats != null) {
+				stats.record(latencyStats.PULSE_WIDTH, batchKeys[i], width);
+			}
+		}
+		for (int i = 0; i < batchCommandCount; i++) {
+			command c = batchCommands[i];
+			c.completedNanos = done;
+			if (journal != null && c.touchNanos != 0 && c.type != RELEASE) {
+				journal.injected(c.key, done - c.touchNanos);
+			}
+			if (stats != null) {
+				stats.record(latencyStats.QUEUED, c.key, start - c.submittedNanos);
+				stats.record(latencyStats.FOCUS, c.key, focused - start);
+				stats.record(latencyStats.INJECT, c.key, done - focused);
+				if (c.touchNanos != 0) {
+					stats.record(latencyStats.TOUCH_TO_KEY, c.key, done - c.touchNanos);
+				}
+			}
+			batchCommands[i] = null;
+		}
+		batchCommandCount = 0;
+		batchSize = 0;
+	}
+
+	/**
+	 * Forgets a batch the backend failed to send.
+	 * Pulses whose key-down never went out are
+	 * cancelled; a key-up that never went out leaves
+	 * its key marked as pressed, for the idle sweep
+	 * to release.
+	 */
+	private void dropBatch() {
+		sendFailures++;
+		for (int i = 0; i < batchSize; i++) {
+			pulses.undelivered(batchKeys[i], batchDown[i]);
+		}
+		long done = System.nanoTime();
+		for (int i = 0; i < batchCommandCount; i++) {
+			command c = batchCommands[i];
+			c.failed = true;
+			c.completedNanos = done;
+			batchCommands[i] = null;
+		}
+		batchCommandCount = 0;
+		batchSize = 0;
+	}
+
+}
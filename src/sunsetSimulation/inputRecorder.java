@@ -0,0 +1,106 @@
+/**
+ * inputRecorder.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * inputRecorder captures the raw stream of button
+ * events, before any coalescing, so a day on the
+ * floor can be replayed with inputReplayer.
+ * 
+ * A recording starts with a magic number and the
+ * layout ids of the buttons, so it replays against
+ * the same buttons even if the layout is reordered.
+ * Each event after that is six bytes: the time
+ * since the previous event in microseconds (an
+ * int, so a gap of over half an hour is shortened
+ * to that), the button's index in the id list,
+ * and the clickStateMachine event kind.
+ */
+public class inputRecorder {
+
+	public static final int magic = 0x53535231; // "SSR1"
+
+	private final Map<simulationButton, Integer> indexes = new IdentityHashMap<simulationButton, Integer>();
+	private final DataOutputStream out;
+	private long lastNanos;
+	private long events;
+
+	/**
+	 * @param file     where to record to
+	 * @param ids      layout ids of the buttons
+	 * @param buttons  the buttons, in the same order as ids
+	 */
+	public inputRecorder(File file, String[] ids, simulationButton[] buttons) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		out.writeInt(magic);
+		out.writeInt(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			out.writeUTF(ids[i]);
+			indexes.put(buttons[i], Integer.valueOf(i));
+		}
+	}
+
+	/**
+	 * @param button      the button that was interacted with
+	 * @param kind        PRESS, RELEASE, ENTER or EXIT
+	 * @param touchNanos  System.nanoTime() when the event arrived
+	 */
+	public synchronized void record(simulationButton button, int kind, long touchNanos) {
+		Integer index = indexes.get(button);
+		if (index == null) {
+			return;
+		}
+		long micros = lastNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(touchNanos - lastNanos);
+		lastNanos = touchNanos;
+		try {
+			out.writeInt((int)Math.max(0, Math.min(Integer.MAX_VALUE, micros)));
+			out.writeByte(index.intValue());
+			out.writeByte(kind);
+			events++;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return how many events have been recorded
+	 */
+	public synchronized long getEvents() {
+		return events;
+	}
+
+	/**
+	 * Writes out whatever is buffered, and ends the
+	 * recording.
+	 */
+	public synchronized void close() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
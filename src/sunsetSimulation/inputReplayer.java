@@ -0,0 +1,333 @@
+/**
+ * inputReplayer.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.EventQueue;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * inputReplayer plays an inputRecorder recording
+ * through the overlay's real button logic, with no
+ * window and no user32: clickStateMachine, then
+ * buttonController, then inputInjector, into a
+ * recordingKeyInjector, with fixedWindowTable
+ * standing in for the simulation's window.
+ * 
+ * It reports how fast the events went through,
+ * what keys were injected, and which keys were
+ * left held down at the end, which should be none
+ * for any recording that ends with the finger up.
+ * It exits with 1 if a key was left held, so a
+ * recorded day doubles as a regression test:
+ *   java -cp ... sunsetSimulation.inputReplayer <recording> [speed] [sequence file]
+ * where speed is 1 for real time (the default),
+ * 10 for ten times as fast, or 0 for as fast as
+ * possible. Click frames are timed on the
+ * recording's clock rather than in real time, so
+ * the click state machine groups the same events
+ * together at any speed. Key pulses always take
+ * their real width, so at high speeds more of them
+ * overlap than on the floor.
+ */
+public class inputReplayer {
+
+	private static final String simulationName = "Sunset Simulation replay";
+	private static final long settleNanos = 50000000L;
+
+	private final Map<String, simulationButton> buttonsById = new HashMap<String, simulationButton>();
+	private final recordingKeyInjector keys = new recordingKeyInjector();
+	private final fixedWindowTable windows = new fixedWindowTable(simulationName);
+	private final pressedKeySet pressed;
+	private final latencyStats latency;
+	private final clickStateMachine clicks;
+	private final long settleAfterNanos;
+	private simulationButton[] eventButtons = new simulationButton[0];
+	private int[] eventKinds = new int[0];
+	private int[] eventMicros = new int[0];
+	private int eventCount;
+	private long recordedNanos;
+	private long replayNanos;
+	// Recorded time the current click frame began; only used on the EDT
+	private long frameStartNanos;
+
+	/**
+	 * @param layout  the layout the recording was made with
+	 */
+	public inputReplayer(buttonLayout layout) {
+		spriteAtlas atlas = new spriteAtlas(null, new BufferedImage[]{
+				new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB) });
+		for (buttonLayout.entry entry : layout.getEntries()) {
+			buttonsById.put(entry.id, entry.radio
+					? new simulationButton(atlas, 0, 0, 0, entry.key, entry.bounds)
+					: new simulationButton(atlas, 0, 0, entry.key, entry.bounds));
+		}
+		pressed = new pressedKeySet(layout.keys());
+		latency = new latencyStats(layout.keys());
+		keyPulseScheduler pulses = sunsetSimulation.createPulseScheduler(layout.keys());
+		long widest = 0;
+		for (int key : layout.keys()) {
+			widest = Math.max(widest, pulses.getWidth(key));
+		}
+		settleAfterNanos = widest + settleNanos;
+		final windowResolver resolver = new windowResolver(windows);
+		inputInjector injector = new inputInjector(keys, pressed, pulses, latency, null, new Runnable() {
+			@Override
+			public void run() { resolver.bringToFront(simulationName, true); }
+		});
+		// Frames are ended by replay(), on the recording's clock
+		clicks = new clickStateMachine(new buttonController(injector, latency, null, null, null), 0);
+	}
+
+	/**
+	 * @param args  recording, then optionally speed and a file
+	 *              to write the injected key sequence to
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: inputReplayer <recording> [speed] [sequence file]");
+			System.exit(2);
+		}
+		inputReplayer replayer = new inputReplayer(
+				buttonLayout.load(sunsetSimulation.class, sunsetSimulation.layoutPath));
+		replayer.load(new File(args[0]));
+		replayer.replay(args.length > 1 ? Double.parseDouble(args[1]) : 1);
+		System.out.print(replayer.getReport());
+		if (args.length > 2) {
+			try (Writer out = new FileWriter(args[2])) {
+				for (String event : replayer.getSequence()) {
+					out.write(event);
+					out.write('\n');
+				}
+			}
+		}
+		System.exit(replayer.getHeldKeys().isEmpty() ? 0 : 1);
+	}
+
+	/**
+	 * @param file  an inputRecorder recording
+	 */
+	public void load(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readInt() != inputRecorder.magic) {
+				throw new IOException("Not a recording: " + file);
+			}
+			simulationButton[] recorded = new simulationButton[in.readInt()];
+			for (int i = 0; i < recorded.length; i++) {
+				String id = in.readUTF();
+				recorded[i] = buttonsById.get(id);
+				if (recorded[i] == null) {
+					throw new IOException("Recording uses a button the layout doesn't have: " + id);
+				}
+			}
+			while (true) {
+				int micros;
+				try {
+					micros = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				int button;
+				int kind;
+				try {
+					button = in.readUnsignedByte();
+					kind = in.readUnsignedByte();
+				} catch (EOFException e) {
+					throw new IOException("Recording is cut off after " + eventCount + " events");
+				}
+				if (button >= recorded.length || kind > clickStateMachine.EXIT) {
+					throw new IOException("Recording is damaged after " + eventCount + " events");
+				}
+				add(recorded[button], kind, micros);
+			}
+		}
+	}
+
+	private void add(simulationButton button, int kind, int micros) {
+		if (eventCount == eventKinds.length) {
+			int size = Math.max(1024, eventCount * 2);
+			eventButtons = Arrays.copyOf(eventButtons, size);
+			eventKinds = Arrays.copyOf(eventKinds, size);
+			eventMicros = Arrays.copyOf(eventMicros, size);
+		}
+		eventButtons[eventCount] = button;
+		eventKinds[eventCount] = kind;
+		eventMicros[eventCount] = micros;
+		eventCount++;
+		recordedNanos += TimeUnit.MICROSECONDS.toNanos(micros);
+	}
+
+	/**
+	 * @param speed  how many times faster than recorded, or
+	 *               0 for as fast as possible
+	 * Plays every event on the EDT, one EDT turn
+	 * each as on the floor, then waits for the last
+	 * key events to be injected.
+	 */
+	public void replay(double speed) throws InterruptedException, InvocationTargetException {
+		long start = System.nanoTime();
+		long due = start;
+		long recordedAt = 0;
+		for (int i = 0; i < eventCount; i++) {
+			recordedAt += TimeUnit.MICROSECONDS.toNanos(eventMicros[i]);
+			if (speed > 0) {
+				due += (long)(TimeUnit.MICROSECONDS.toNanos(eventMicros[i]) / speed);
+				for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+					LockSupport.parkNanos(wait);
+				}
+			}
+			final simulationButton button = eventButtons[i];
+			final int kind = eventKinds[i];
+			final long at = recordedAt;
+			EventQueue.invokeAndWait(new Runnable() {
+				@Override
+				public void run() { offer(button, kind, at); }
+			});
+		}
+		replayNanos = System.nanoTime() - start;
+		// Deliver the last frame, then let the injector finish
+		EventQueue.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				clicks.endFrame();
+				clicks.endFrame();
+			}
+		});
+		// Done once nothing has been injected for settleAfterNanos
+		int calls = keys.getCalls();
+		long quietUntil = System.nanoTime() + settleAfterNanos;
+		for (long wait = settleAfterNanos; wait > 0; wait = quietUntil - System.nanoTime()) {
+			LockSupport.parkNanos(wait);
+			if (calls != keys.getCalls()) {
+				calls = keys.getCalls();
+				quietUntil = System.nanoTime() + settleAfterNanos;
+			}
+		}
+	}
+
+	/**
+	 * @return how long the loaded recording lasted, in nanoseconds
+	 */
+	long getRecordedNanos() {
+		return recordedNanos;
+	}
+
+	/**
+	 * @return how long the last replay took to play every
+	 * event, in nanoseconds
+	 */
+	long getReplayNanos() {
+		return replayNanos;
+	}
+
+	/**
+	 * @param button      the button the event was for
+	 * @param kind        the clickStateMachine event kind
+	 * @param recordedAt  when the event happened, in recorded
+	 *                    nanoseconds since the recording began
+	 * Ends every click frame that was over on the
+	 * floor by the time of this event, then offers
+	 * it. Runs on the EDT.
+	 */
+	private void offer(simulationButton button, int kind, long recordedAt) {
+		long frameNanos = TimeUnit.MILLISECONDS.toNanos(sunsetSimulation.clickFrameMillis);
+		while (clicks.isInFrame() && recordedAt - frameStartNanos >= frameNanos) {
+			clicks.endFrame();
+			frameStartNanos += frameNanos;
+		}
+		boolean startsFrame = !clicks.isInFrame();
+		clicks.offer(button, kind, System.nanoTime());
+		if (startsFrame) {
+			frameStartNanos = recordedAt;
+		}
+	}
+
+	/**
+	 * @return every key event injected, in order, as
+	 * "+key" for a press and "-key" for a release
+	 */
+	public List<String> getSequence() {
+		List<String> sequence = new ArrayList<String>();
+		for (Integer event : keys.getEvents()) {
+			int key = event.intValue();
+			sequence.add((key > 0 ? "+" : "-") + KeyEvent.getKeyText(Math.abs(key)));
+		}
+		return sequence;
+	}
+
+	/**
+	 * @return names of the keys still down at the end
+	 * of the injected sequence
+	 */
+	public List<String> getHeldKeys() {
+		Map<Integer, Boolean> down = new LinkedHashMap<Integer, Boolean>();
+		for (Integer event : keys.getEvents()) {
+			down.put(Integer.valueOf(Math.abs(event.intValue())), Boolean.valueOf(event.intValue() > 0));
+		}
+		List<String> held = new ArrayList<String>();
+		for (Map.Entry<Integer, Boolean> key : down.entrySet()) {
+			if (key.getValue().booleanValue() || pressed.isDown(key.getKey().intValue())) {
+				held.add(KeyEvent.getKeyText(key.getKey().intValue()));
+			}
+		}
+		return held;
+	}
+
+	/**
+	 * @return throughput, key counts, held keys and
+	 * the latency of every stage
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		double seconds = replayNanos / 1e9;
+		report.append(String.format("events replayed: %d in %.3f s (%.0f events/s, %.1fx recorded speed)%n",
+				eventCount, seconds, eventCount / Math.max(seconds, 1e-9),
+				recordedNanos / (double)Math.max(replayNanos, 1)));
+		report.append("clicks delivered: ").append(clicks.getDelivered()).append('\n');
+		List<String> sequence = getSequence();
+		report.append("key events injected: ").append(sequence.size()).append(" in ")
+				.append(keys.getCalls()).append(" batches, ")
+				.append(windows.getFocusChanges()).append(" focus changes\n");
+		report.append("first key events:");
+		for (int i = 0; i < Math.min(20, sequence.size()); i++) {
+			report.append(' ').append(sequence.get(i));
+		}
+		report.append('\n');
+		List<String> held = getHeldKeys();
+		report.append("keys held at end: ").append(held.isEmpty() ? "none" : held.toString()).append('\n');
+		report.append(latency.getReport());
+		return report.toString();
+	}
+
+}
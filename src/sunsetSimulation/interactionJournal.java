@@ -0,0 +1,183 @@
+/**
+ * interactionJournal.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * interactionJournal keeps a permanent record of
+ * how visitors use the buttons, cheaply enough to
+ * write from the touch path. Each button state
+ * change is one fixed-size record in a memory
+ * mapped file: nothing is allocated and nothing
+ * waits on the disk per record, and the OS writes
+ * the pages back even if the overlay dies.
+ * 
+ * A file holds a header (magic, record size, when
+ * it was opened) and then records of recordSize
+ * bytes:
+ *   0   long  wall-clock time, epoch milliseconds
+ *   8   int   KeyEvent key of the button
+ *   12  byte  state before
+ *   13  byte  state after
+ *   14  short unused
+ *   16  long  touch-to-key latency in nanoseconds,
+ *             or -1 if no key was injected
+ *   24  long  System.nanoTime() of the change
+ * The first record with a zero time ends the file.
+ * 
+ * A new file is started at midnight, and whenever
+ * the current one is full. journalReader turns
+ * the files into usage counts.
+ */
+public class interactionJournal {
+
+	public static final int magic = 0x53534a31; // "SSJ1"
+	public static final int headerSize = 16;
+	public static final int recordSize = 32;
+
+	private final File dir;
+	private final long maxBytes;
+	private final long[] pending = new long[256];
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int position;
+	private long rotateAtMillis;
+
+	/**
+	 * @param dir       directory to keep the journal files in
+	 * @param maxBytes  size at which a file is full
+	 */
+	public interactionJournal(File dir, long maxBytes) throws IOException {
+		this.dir = dir;
+		this.maxBytes = Math.min(Integer.MAX_VALUE, Math.max(headerSize + recordSize, maxBytes));
+		open();
+	}
+
+	/**
+	 * @return the default journal directory, beside
+	 * the asset cache
+	 */
+	public static File defaultDir() {
+		return new File(assetLoader.defaultCacheDir().getParentFile(), "journal");
+	}
+
+	/**
+	 * @param key   the button's key
+	 * @param from  the button's state before
+	 * @param to    the button's state now
+	 * Records a state change. A change to CLICKED is
+	 * the one that injects a key; its latency is
+	 * filled in by injected().
+	 */
+	public synchronized void transition(int key, int from, int to) {
+		if (buffer == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		if (now >= rotateAtMillis || position + recordSize > buffer.capacity()) {
+			rotate();
+			if (buffer == null) {
+				return;
+			}
+		}
+		int at = position;
+		buffer.putLong(at, now);
+		buffer.putInt(at + 8, key);
+		buffer.put(at + 12, (byte)from);
+		buffer.put(at + 13, (byte)to);
+		buffer.putLong(at + 16, -1);
+		buffer.putLong(at + 24, System.nanoTime());
+		position += recordSize;
+		pending[key & 0xFF] = to == simulationButton.CLICKED ? at : 0;
+	}
+
+	/**
+	 * @param key           the key that was injected
+	 * @param latencyNanos  from the touch to the key reaching the OS
+	 * Fills in the latency of the key's last CLICKED record.
+	 */
+	public synchronized void injected(int key, long latencyNanos) {
+		int at = (int)pending[key & 0xFF];
+		if (at != 0 && buffer != null) {
+			buffer.putLong(at + 16, latencyNanos);
+			pending[key & 0xFF] = 0;
+		}
+	}
+
+	/**
+	 * Flushes the current file to disk, and stops
+	 * recording.
+	 */
+	public synchronized void close() {
+		if (buffer != null) {
+			buffer.force();
+			buffer = null;
+		}
+		try {
+			if (channel != null) {
+				channel.close();
+				channel = null;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Starts the next file. If that fails, the
+	 * journal stops recording rather than retry on
+	 * every touch.
+	 */
+	private void rotate() {
+		close();
+		try {
+			open();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void open() throws IOException {
+		dir.mkdirs();
+		long now = System.currentTimeMillis();
+		String name = "journal-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(now));
+		File file = new File(dir, name + ".bin");
+		for (int i = 1; file.exists(); i++) {
+			file = new File(dir, name + "-" + i + ".bin");
+		}
+		channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, maxBytes);
+		buffer.putInt(0, magic);
+		buffer.putInt(4, recordSize);
+		buffer.putLong(8, now);
+		position = headerSize;
+		Arrays.fill(pending, 0);
+		ZoneId zone = ZoneId.systemDefault();
+		rotateAtMillis = LocalDate.now(zone).plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+	}
+
+}
@@ -0,0 +1,177 @@
+/**
+ * journalReader.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * journalReader summarizes interactionJournal
+ * files offline: for each day, how many times each
+ * button was pressed, how many times each timeline
+ * stage was selected, and the median time from
+ * touch to key. Run with the journal files or
+ * directories to read, or with nothing for the
+ * default journal directory:
+ *   java -cp ... sunsetSimulation.journalReader [path...]
+ */
+public class journalReader {
+
+	// Bytes of each record the reader uses; later versions may add more
+	private static final int fieldsSize = 24;
+
+	/**
+	 * One button's counts for one day.
+	 */
+	static final class usage {
+		int presses;
+		int selections;
+		final List<Long> latencies = new ArrayList<Long>();
+	}
+
+	// day -> key -> usage
+	private final Map<LocalDate, Map<Integer, usage>> days = new TreeMap<LocalDate, Map<Integer, usage>>();
+	private final ZoneId zone = ZoneId.systemDefault();
+	private int records;
+
+	/**
+	 * @param args  journal files or directories to read
+	 */
+	public static void main(String[] args) throws IOException {
+		journalReader reader = new journalReader();
+		if (args.length == 0) {
+			args = new String[]{ interactionJournal.defaultDir().getPath() };
+		}
+		for (String arg : args) {
+			File path = new File(arg);
+			File[] files = path.isDirectory() ? path.listFiles() : new File[]{ path };
+			if (files == null) {
+				continue;
+			}
+			Arrays.sort(files);
+			for (File file : files) {
+				if (file.isFile() && file.getName().endsWith(".bin")) {
+					reader.read(file);
+				}
+			}
+		}
+		System.out.print(reader.getReport());
+	}
+
+	/**
+	 * @param file  one journal file
+	 * Adds the file's records to the totals.
+	 */
+	public void read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.capacity() < interactionJournal.headerSize || buffer.getInt(0) != interactionJournal.magic) {
+				System.err.println("Not a journal: " + file);
+				return;
+			}
+			int size = buffer.getInt(4);
+			if (size < fieldsSize) {
+				System.err.println("Damaged journal, record size " + size + ": " + file);
+				return;
+			}
+			for (int at = interactionJournal.headerSize; at + size <= buffer.capacity(); at += size) {
+				long millis = buffer.getLong(at);
+				if (millis == 0) {
+					break;
+				}
+				add(millis, buffer.getInt(at + 8), buffer.get(at + 13), buffer.getLong(at + 16));
+			}
+		}
+	}
+
+	private void add(long millis, int key, int to, long latencyNanos) {
+		records++;
+		LocalDate day = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+		Map<Integer, usage> keys = days.get(day);
+		if (keys == null) {
+			keys = new TreeMap<Integer, usage>();
+			days.put(day, keys);
+		}
+		usage u = keys.get(Integer.valueOf(key));
+		if (u == null) {
+			u = new usage();
+			keys.put(Integer.valueOf(key), u);
+		}
+		if (to == simulationButton.CLICKED) {
+			u.presses++;
+			if (latencyNanos >= 0) {
+				u.latencies.add(Long.valueOf(latencyNanos));
+			}
+		} else if (to == simulationButton.ACTIVE) {
+			u.selections++;
+		}
+	}
+
+	/**
+	 * @return how many records have been read
+	 */
+	int getRecords() {
+		return records;
+	}
+
+	/**
+	 * @param day  a day
+	 * @param key  a button's key
+	 * @return the button's counts for the day, or null if
+	 * nothing was recorded for it
+	 */
+	usage get(LocalDate day, int key) {
+		Map<Integer, usage> keys = days.get(day);
+		return keys == null ? null : keys.get(Integer.valueOf(key));
+	}
+
+	/**
+	 * @return the totals so far, one block per day
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append(records).append(" records\n");
+		for (Map.Entry<LocalDate, Map<Integer, usage>> day : days.entrySet()) {
+			report.append(day.getKey()).append('\n');
+			report.append(String.format("  %-12s %8s %9s %14s%n", "button", "presses", "selected", "p50 touch (ms)"));
+			for (Map.Entry<Integer, usage> key : day.getValue().entrySet()) {
+				usage u = key.getValue();
+				String median = "-";
+				if (!u.latencies.isEmpty()) {
+					Collections.sort(u.latencies);
+					median = String.format("%.3f", u.latencies.get(u.latencies.size() / 2).longValue() / 1e6);
+				}
+				report.append(String.format("  %-12s %8d %9d %14s%n",
+						KeyEvent.getKeyText(key.getKey().intValue()), u.presses, u.selections, median));
+			}
+		}
+		return report.toString();
+	}
+
+}
@@ -0,0 +1,42 @@
+/**
+ * keyInjector.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * keyInjector is the backend that actually
+ * delivers faked keyboard events to the OS.
+ * 
+ * Events are handed over in batches, so a
+ * backend that can deliver several events in a
+ * single native call (sendInputKeyInjector) only
+ * pays one round trip per batch. robotKeyInjector
+ * keeps the original one-call-per-event Robot
+ * behaviour as a fallback, and recordingKeyInjector
+ * just remembers what it was asked to send.
+ * 
+ * Implementations are only ever called from the
+ * inputInjector thread.
+ */
+public interface keyInjector {
+
+	/**
+	 * @param keys   KeyEvent virtual key codes, in order
+	 * @param down   for each key, true for key-down, false for key-up
+	 * @param count  number of entries of keys/down to send
+	 */
+	void send(int[] keys, boolean[] down, int count);
+
+}
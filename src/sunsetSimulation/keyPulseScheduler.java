@@ -0,0 +1,247 @@
+/**
+ * keyPulseScheduler.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * keyPulseScheduler times the momentary key
+ * presses the timeline buttons send. It is driven
+ * by the inputInjector thread, off the EDT, which
+ * parks until just before the next release is due
+ * and spins for the last stretch, so a pulse ends
+ * within microseconds of its deadline instead of
+ * whenever a timer gets round to it.
+ * 
+ * Windows only wakes parked threads on its timer
+ * tick, every 15.6ms unless something asks for
+ * better, which would overshoot the spin by up to
+ * a whole tick. So while any pulse is running the
+ * scheduler asks for a 1ms tick (timeBeginPeriod),
+ * and gives it back as soon as none is.
+ * 
+ * Pulse widths can be set per key. Pulsing a key
+ * that is already mid-pulse extends the pulse
+ * rather than pressing the key again. The width
+ * of every pulse is measured from the key-down
+ * actually reaching the OS to the key-up doing so.
+ * 
+ * Keys are indexed by their low byte, which
+ * covers every key the overlay presses.
+ */
+public class keyPulseScheduler {
+
+	private static final int keyCount = 256;
+	// Longer than the 1ms timer tick asked for while pulses run
+	private static final long spinNanos = 2000000L;
+	private static final int timerPeriodMillis = 1;
+	// Cleared if winmm can't be bound
+	private static volatile boolean fineTimer = sunsetSimulation.onWindows();
+
+	private final long defaultWidthNanos;
+	private final AtomicLongArray widths = new AtomicLongArray(keyCount);
+	// Everything below is only touched by the injector thread.
+	private final boolean[] pending = new boolean[keyCount];
+	private final long[] deadlines = new long[keyCount];
+	private final long[] pulseWidths = new long[keyCount];
+	private final long[] downAt = new long[keyCount];
+	private int pendingCount;
+
+	/**
+	 * @param defaultWidthNanos  pulse width for keys without their own
+	 */
+	public keyPulseScheduler(long defaultWidthNanos) {
+		this.defaultWidthNanos = defaultWidthNanos;
+	}
+
+	/**
+	 * @param key         KeyEvent virtual key code
+	 * @param widthNanos  how long to hold the key, or 0 for the default
+	 */
+	public void setWidth(int key, long widthNanos) {
+		widths.set(key & 0xFF, widthNanos);
+	}
+
+	/**
+	 * @param key  KeyEvent virtual key code
+	 * @return how long a pulse of the key lasts
+	 */
+	public long getWidth(int key) {
+		long width = widths.get(key & 0xFF);
+		return width > 0 ? width : defaultWidthNanos;
+	}
+
+	/**
+	 * @param key  KeyEvent virtual key code
+	 * @return whether the key is mid-pulse
+	 */
+	boolean isPending(int key) {
+		return pending[key & 0xFF];
+	}
+
+	/**
+	 * @param key         KeyEvent virtual key code
+	 * @param widthNanos  how long to hold the key
+	 * @param now         System.nanoTime()
+	 * Starts a pulse, or pushes back the end of
+	 * the one already running on the key.
+	 */
+	void start(int key, long widthNanos, long now) {
+		int k = key & 0xFF;
+		long deadline = now + widthNanos;
+		if (!pending[k]) {
+			addPending(k);
+			pulseWidths[k] = widthNanos;
+			deadlines[k] = deadline;
+		} else if (deadline - deadlines[k] > 0) {
+			deadlines[k] = deadline;
+		}
+	}
+
+	/**
+	 * @param key  KeyEvent virtual key code
+	 * Forgets the key's pulse, because the key
+	 * is being released some other way.
+	 */
+	void cancel(int key) {
+		int k = key & 0xFF;
+		if (pending[k]) {
+			removePending(k);
+		}
+	}
+
+	/**
+	 * @param now  System.nanoTime()
+	 * @return a key whose pulse is over, now no longer
+	 * pending, or -1 if there is none
+	 */
+	int takeDue(long now) {
+		if (pendingCount == 0) {
+			return -1;
+		}
+		for (int k = 0; k < keyCount; k++) {
+			if (pending[k] && deadlines[k] - now <= 0) {
+				removePending(k);
+				return k;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param now  System.nanoTime()
+	 * @return nanoseconds until the next pulse ends,
+	 * or Long.MAX_VALUE if none is running
+	 */
+	long nanosUntilNext(long now) {
+		long wait = Long.MAX_VALUE;
+		if (pendingCount == 0) {
+			return wait;
+		}
+		for (int k = 0; k < keyCount; k++) {
+			if (pending[k] && deadlines[k] - now < wait) {
+				wait = Math.max(0, deadlines[k] - now);
+			}
+		}
+		return wait;
+	}
+
+	/**
+	 * @return how close to a deadline the injector
+	 * stops parking and starts spinning
+	 */
+	long getSpinNanos() {
+		return spinNanos;
+	}
+
+	/**
+	 * @param key   KeyEvent virtual key code
+	 * @param down  whether it was a key-down that failed
+	 * A key-down that never reached the OS has
+	 * nothing to release, so its new pulse is
+	 * cancelled. One that extends a pulse already
+	 * under way leaves it alone.
+	 */
+	void undelivered(int key, boolean down) {
+		int k = key & 0xFF;
+		if (down && pending[k] && downAt[k] == 0) {
+			removePending(k);
+		}
+	}
+
+	/**
+	 * @param key   KeyEvent virtual key code
+	 * @param down  whether a key-down was delivered
+	 * @param at    System.nanoTime() of delivery
+	 * @return the measured width if this key-up ended
+	 * a pulse, otherwise -1
+	 * A new pulse's width is counted from when its
+	 * key-down reached the OS, so time spent on focus
+	 * checks doesn't eat into it.
+	 */
+	long delivered(int key, boolean down, long at) {
+		int k = key & 0xFF;
+		if (down) {
+			if (pending[k] && downAt[k] == 0) {
+				downAt[k] = at;
+				deadlines[k] = at + pulseWidths[k];
+			}
+			return -1;
+		}
+		if (downAt[k] == 0) {
+			return -1;
+		}
+		long width = at - downAt[k];
+		downAt[k] = 0;
+		return width;
+	}
+
+	private void addPending(int k) {
+		pending[k] = true;
+		if (pendingCount++ == 0) {
+			setFineTimer(true);
+		}
+	}
+
+	private void removePending(int k) {
+		pending[k] = false;
+		if (--pendingCount == 0) {
+			setFineTimer(false);
+		}
+	}
+
+	/**
+	 * @param on  whether pulses need the 1ms timer tick
+	 * Each request is matched by a release, as
+	 * timeBeginPeriod requires.
+	 */
+	private static void setFineTimer(boolean on) {
+		if (!fineTimer) {
+			return;
+		}
+		try {
+			if (on) {
+				sunsetSimulation.Winmm.timeBeginPeriod(timerPeriodMillis);
+			} else {
+				sunsetSimulation.Winmm.timeEndPeriod(timerPeriodMillis);
+			}
+		} catch (LinkageError e) {
+			fineTimer = false;
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,32 @@
+/**
+ * keyStateSource.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * keyStateSource reports whether the OS thinks a
+ * key is down, independently of what the overlay
+ * believes it has pressed. Used to catch keys
+ * that got stuck some other way.
+ */
+public interface keyStateSource {
+
+	/**
+	 * @param key  KeyEvent virtual key code
+	 * @return whether the key is currently down
+	 */
+	boolean isDown(int key);
+
+}
@@ -0,0 +1,122 @@
+/**
+ * latencyHistogram.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * latencyHistogram counts durations in fixed
+ * log-linear buckets: eight buckets per power of
+ * two, so any percentile it reports is within
+ * about 12% of the true value.
+ * 
+ * Recording is a handful of atomic adds and never
+ * allocates, so it can sit on the touch path
+ * without disturbing what it measures.
+ */
+public class latencyHistogram {
+
+	private static final int subBuckets = 8;
+	private static final int subBucketBits = 3;
+	private static final int buckets = 64 * subBuckets;
+
+	private final AtomicLongArray counts = new AtomicLongArray(buckets);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param nanos  the duration to record
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts.incrementAndGet(bucketOf(nanos));
+		count.incrementAndGet();
+		long old;
+		while (nanos > (old = max.get())) {
+			if (max.compareAndSet(old, nanos)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return number of durations recorded
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return longest duration recorded, in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param percentile  between 0 and 100
+	 * @return the duration below which that share of
+	 * recordings fall, in nanoseconds, or 0 if empty
+	 */
+	public long getPercentile(double percentile) {
+		long total = count.get();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long)Math.ceil(total * percentile / 100.0));
+		long seen = 0;
+		for (int i = 0; i < buckets; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Forgets every recording.
+	 */
+	public void reset() {
+		for (int i = 0; i < buckets; i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		max.set(0);
+	}
+
+	private static int bucketOf(long nanos) {
+		if (nanos < subBuckets) {
+			return (int)nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int mantissa = (int)(nanos >>> (exponent - subBucketBits)) & (subBuckets - 1);
+		return (exponent - subBucketBits + 1) * subBuckets + mantissa;
+	}
+
+	private static long upperBoundOf(int bucket) {
+		if (bucket < subBuckets) {
+			return bucket;
+		}
+		int exponent = bucket / subBuckets + subBucketBits - 1;
+		long mantissa = bucket % subBuckets;
+		return ((subBuckets + mantissa + 1) << (exponent - subBucketBits)) - 1;
+	}
+
+}
@@ -0,0 +1,180 @@
+/**
+ * latencyStats.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.event.KeyEvent;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * latencyStats holds a latencyHistogram for each
+ * stage of the path from a touch to the faked key
+ * event, per key (and so per button, since each
+ * button has its own key) and across all keys.
+ * 
+ * Stages:
+ *   OS_TO_LISTENER  OS input timestamp to the Swing listener (OS tick resolution)
+ *   HANDLER         time spent in clickHandler
+ *   QUEUED          waiting in the inputInjector queue
+ *   FOCUS           making sure the simulation has focus
+ *   INJECT          handing the key batch to the OS
+ *   TOUCH_TO_KEY    Swing listener to key event delivered
+ *   PULSE_WIDTH     how long momentary keys were actually held
+ * 
+ * Readable over JMX, and written to the file named
+ * by -DsunsetSimulation.latencyDump on exit.
+ * With several stations, each has its own.
+ */
+public class latencyStats implements latencyStatsMBean {
+
+	public final static int OS_TO_LISTENER = 0;
+	public final static int HANDLER = 1;
+	public final static int QUEUED = 2;
+	public final static int FOCUS = 3;
+	public final static int INJECT = 4;
+	public final static int TOUCH_TO_KEY = 5;
+	public final static int PULSE_WIDTH = 6;
+	private static final String[] stageNames = new String[]{
+			"os to listener", "handler", "queued", "focus", "inject", "touch to key", "pulse width"
+	};
+
+	private final int[] keys;
+	// [stage][key slot], with the last slot covering every key
+	private final latencyHistogram[][] histograms;
+
+	/**
+	 * @param keys  every key the overlay can press
+	 */
+	public latencyStats(int[] keys) {
+		this.keys = keys.clone();
+		histograms = new latencyHistogram[stageNames.length][keys.length + 1];
+		for (latencyHistogram[] stage : histograms) {
+			for (int i = 0; i < stage.length; i++) {
+				stage[i] = new latencyHistogram();
+			}
+		}
+	}
+
+	/**
+	 * @param stage  which stage of the touch path
+	 * @param key    the key the touch was for
+	 * @param nanos  how long the stage took
+	 * Never allocates.
+	 */
+	public void record(int stage, int key, long nanos) {
+		latencyHistogram[] row = histograms[stage];
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == key) {
+				row[i].record(nanos);
+				break;
+			}
+		}
+		row[keys.length].record(nanos);
+	}
+
+	/**
+	 * @param stage  which stage of the touch path
+	 * @return the histogram across every key
+	 */
+	public latencyHistogram get(int stage) {
+		return histograms[stage][keys.length];
+	}
+
+	/**
+	 * Registers with the platform MBean server, and
+	 * dumps on exit if a dump file was asked for.
+	 */
+	public void publish() {
+		publish(null, System.getProperty("sunsetSimulation.latencyDump"));
+	}
+
+	/**
+	 * @param station  the station the stats are for, or
+	 *                 null when there is only one
+	 * @param path     file to dump to on exit, or null
+	 * Registers with the platform MBean server, under
+	 * the station's name, and dumps on exit if a dump
+	 * file was given.
+	 */
+	public void publish(String station, final String path) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(
+					"sunsetSimulation:type=latencyStats" + (station != null ? ",station=" + station : "")));
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+		if (path != null) {
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() { dump(path); }
+			}));
+		}
+	}
+
+	@Override
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append("stage / key: count p50 p90 p99 max (ms)\n");
+		for (int stage = 0; stage < stageNames.length; stage++) {
+			line(report, stageNames[stage], "all", histograms[stage][keys.length]);
+			for (int i = 0; i < keys.length; i++) {
+				if (histograms[stage][i].getCount() > 0) {
+					line(report, stageNames[stage], KeyEvent.getKeyText(keys[i]), histograms[stage][i]);
+				}
+			}
+		}
+		return report.toString();
+	}
+
+	@Override
+	public boolean dump(String path) {
+		try (Writer out = new FileWriter(path)) {
+			out.write(getReport());
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	@Override
+	public void reset() {
+		for (latencyHistogram[] stage : histograms) {
+			for (latencyHistogram histogram : stage) {
+				histogram.reset();
+			}
+		}
+	}
+
+	private static void line(StringBuilder report, String stage, String key, latencyHistogram h) {
+		report.append(stage).append(" / ").append(key).append(": ").append(h.getCount())
+				.append(' ').append(millis(h.getPercentile(50)))
+				.append(' ').append(millis(h.getPercentile(90)))
+				.append(' ').append(millis(h.getPercentile(99)))
+				.append(' ').append(millis(h.getMax())).append('\n');
+	}
+
+	private static String millis(long nanos) {
+		return String.format("%.3f", nanos / (double)TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+}
@@ -0,0 +1,40 @@
+/**
+ * latencyStatsMBean.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * JMX view of latencyStats, registered as
+ * sunsetSimulation:type=latencyStats.
+ */
+public interface latencyStatsMBean {
+
+	/**
+	 * @return the current percentiles, as text
+	 */
+	String getReport();
+
+	/**
+	 * @param path  file to write the report to
+	 * @return whether the file was written
+	 */
+	boolean dump(String path);
+
+	/**
+	 * Forgets every recording.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,160 @@
+/**
+ * pointerTouchSource.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.Window;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.jna.Function;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Pointer;
+import com.sun.jna.win32.StdCallLibrary;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * pointerTouchSource reads WM_POINTER messages
+ * straight off the overlay window, by putting its
+ * own window procedure in front of AWT's. Touch
+ * messages for the primary contact are reported
+ * and swallowed, so Windows never promotes them
+ * to mouse messages; everything else, including
+ * real mouse input, goes on to AWT untouched.
+ * With touch off, touch messages go on to AWT too,
+ * and Windows turns them into mouse messages.
+ * 
+ * Contacts are timed from the OS's own input
+ * timestamp, the pointer's dwTime, rather than from
+ * when they reach Java. The mouse messages going
+ * past are stamped with their message time, which
+ * is on the same clock, for the mouse listeners to
+ * time themselves by (see mouseNanos), so the two
+ * paths' OS_TO_LISTENER stages start at the same
+ * point. Both are only as fine as the OS tick,
+ * 10-16ms, so compare them over many touches.
+ * 
+ * Window procedures run on the AWT toolkit thread,
+ * so the listener must hand work off rather than
+ * do it there.
+ */
+public class pointerTouchSource implements touchSource {
+
+	private static final int GWLP_WNDPROC = -4;
+	private static final int WM_POINTERUPDATE = 0x0245;
+	private static final int WM_POINTERDOWN = 0x0246;
+	private static final int WM_POINTERUP = 0x0247;
+	private static final int POINTER_MESSAGE_FLAG_PRIMARY = 0x2000;
+	private static final int WM_MOUSEMOVE = 0x0200;
+	private static final int WM_LBUTTONDOWN = 0x0201;
+	private static final int WM_LBUTTONUP = 0x0202;
+	// POINTER_INFO: dwTime follows two handles and four POINTs
+	private static final int POINTER_INFO_SIZE = Native.POINTER_SIZE == 8 ? 96 : 88;
+	private static final int POINTER_INFO_TIME = 16 + 2 * Native.POINTER_SIZE + 32;
+
+	private final Window window;
+	private final double scale;
+	private final boolean touch;
+	// Only touched on the toolkit thread
+	private final Memory pointerInfo = new Memory(POINTER_INFO_SIZE);
+	// When the latest mouse message of each kind was stamped, as System.nanoTime()
+	private final long[] mouseNanos = new long[3];
+	// Held for the life of the window, so neither is ever collected.
+	private sunsetSimulation.User32.WNDPROC procedure;
+	private Pointer previous;
+
+	/**
+	 * @param window  the overlay window, already displayable
+	 * @param touch   false to leave touches to Windows' mouse
+	 *                promotion, and only stamp mouse messages
+	 */
+	public pointerTouchSource(Window window, boolean touch) {
+		this.window = window;
+		this.touch = touch;
+		this.scale = window.getGraphicsConfiguration().getDefaultTransform().getScaleX();
+	}
+
+	/**
+	 * @param kind  DOWN for a press, UP for a release, MOVE otherwise
+	 * @return when the latest mouse message of that kind
+	 *         was stamped by the OS, as System.nanoTime(),
+	 *         or 0 if none has been seen
+	 * The mouse listeners run after the toolkit thread
+	 * has seen the message, so the latest one is the
+	 * one they're handling, unless the mouse is moving
+	 * faster than the EDT keeps up.
+	 */
+	public long mouseNanos(int kind) {
+		synchronized (mouseNanos) {
+			return mouseNanos[kind];
+		}
+	}
+
+	/**
+	 * @param tickMillis  an OS input timestamp, in GetTickCount() milliseconds
+	 * @return the same moment as System.nanoTime()
+	 */
+	private static long osNanos(int tickMillis) {
+		long age = (sunsetSimulation.Kernel32.GetTickCount() - tickMillis) & 0xFFFFFFFFL;
+		return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(age);
+	}
+
+	@Override
+	public boolean start(final listener l) {
+		if (!sunsetSimulation.onWindows() || !window.isDisplayable()) {
+			return false;
+		}
+		try {
+			Pointer hWnd = Native.getWindowPointer(window);
+			procedure = new sunsetSimulation.User32.WNDPROC() {
+				@Override
+				public Pointer callback(Pointer hWnd, int uMsg, Pointer wParam, Pointer lParam) {
+					if (touch && uMsg >= WM_POINTERUPDATE && uMsg <= WM_POINTERUP) {
+						long w = Pointer.nativeValue(wParam);
+						if (((w >>> 16) & POINTER_MESSAGE_FLAG_PRIMARY) != 0) {
+							long position = Pointer.nativeValue(lParam);
+							int x = (int)Math.round((short)(position & 0xFFFF) / scale);
+							int y = (int)Math.round((short)((position >>> 16) & 0xFFFF) / scale);
+							int kind = uMsg == WM_POINTERDOWN ? DOWN : uMsg == WM_POINTERUP ? UP : MOVE;
+							int time = sunsetSimulation.User32.GetPointerInfo((int)(w & 0xFFFF), pointerInfo)
+									? pointerInfo.getInt(POINTER_INFO_TIME)
+									: sunsetSimulation.User32.GetMessageTime();
+							l.contact(kind, x, y, osNanos(time));
+							return null;
+						}
+					} else if (uMsg >= WM_MOUSEMOVE && uMsg <= WM_LBUTTONUP) {
+						int kind = uMsg == WM_LBUTTONDOWN ? DOWN : uMsg == WM_LBUTTONUP ? UP : MOVE;
+						long stamped = osNanos(sunsetSimulation.User32.GetMessageTime());
+						synchronized (mouseNanos) {
+							mouseNanos[kind] = stamped;
+						}
+					}
+					return sunsetSimulation.User32.CallWindowProcW(previous, hWnd, uMsg, wParam, lParam);
+				}
+			};
+			// SetWindowLongPtrW only exists in 64-bit user32
+			Function setWindowLong = NativeLibrary.getInstance("user32").getFunction(
+					Native.POINTER_SIZE == 8 ? "SetWindowLongPtrW" : "SetWindowLongW",
+					StdCallLibrary.STDCALL_CONVENTION);
+			previous = (Pointer)setWindowLong.invoke(Pointer.class,
+					new Object[]{ hWnd, Integer.valueOf(GWLP_WNDPROC), procedure });
+			return previous != null;
+		} catch (UnsatisfiedLinkError e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+}
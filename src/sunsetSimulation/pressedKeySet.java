@@ -0,0 +1,116 @@
+/**
+ * pressedKeySet.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * pressedKeySet is the exact set of keys the
+ * overlay currently holds down, as a bitset
+ * indexed by each key's slot in the list of
+ * keys the overlay can press.
+ * 
+ * inputInjector updates it as batches are
+ * actually delivered, so pulse releases on the
+ * injector thread are accounted for too. The
+ * idle watchdog reads it to release only what
+ * is really down.
+ */
+public class pressedKeySet {
+
+	private final int[] keys;
+	private final AtomicLong down = new AtomicLong();
+
+	/**
+	 * @param keys  every key the overlay can press, at most 64
+	 */
+	public pressedKeySet(int[] keys) {
+		if (keys.length > 64) {
+			throw new IllegalArgumentException("Too many keys to track: " + keys.length);
+		}
+		this.keys = keys.clone();
+	}
+
+	/**
+	 * @param key  KeyEvent virtual key code
+	 * @return the key's slot, or -1 if it isn't tracked
+	 */
+	public int slotOf(int key) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == key) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param key      KeyEvent virtual key code
+	 * @param pressed  whether the key is now down
+	 */
+	public void set(int key, boolean pressed) {
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return;
+		}
+		long bit = 1L << slot;
+		long old;
+		do {
+			old = down.get();
+		} while (!down.compareAndSet(old, pressed ? (old | bit) : (old & ~bit)));
+	}
+
+	/**
+	 * @param key  KeyEvent virtual key code
+	 * @return whether the overlay holds the key down
+	 */
+	public boolean isDown(int key) {
+		int slot = slotOf(key);
+		return slot >= 0 && (down.get() & (1L << slot)) != 0;
+	}
+
+	/**
+	 * @return whether no key is held down
+	 */
+	public boolean isEmpty() {
+		return down.get() == 0;
+	}
+
+	/**
+	 * @param osState  the OS's view of the keys, or null to trust the set
+	 * @return every key that should be released: those the
+	 * overlay holds, plus those the OS reports as stuck
+	 */
+	public int[] keysToRelease(keyStateSource osState) {
+		long mask = down.get();
+		if (osState != null) {
+			for (int i = 0; i < keys.length; i++) {
+				if ((mask & (1L << i)) == 0 && osState.isDown(keys[i])) {
+					mask |= 1L << i;
+				}
+			}
+		}
+		int[] result = new int[Long.bitCount(mask)];
+		int n = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if ((mask & (1L << i)) != 0) {
+				result[n++] = keys[i];
+			}
+		}
+		return result;
+	}
+
+}
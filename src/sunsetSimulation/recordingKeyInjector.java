@@ -0,0 +1,64 @@
+/**
+ * recordingKeyInjector.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * recordingKeyInjector sends nothing to the OS.
+ * It remembers every event it was given and how
+ * many batches they arrived in, for running the
+ * overlay's input path off Windows.
+ */
+public class recordingKeyInjector implements keyInjector {
+
+	private final List<Integer> events = new ArrayList<Integer>();
+	private int calls;
+
+	@Override
+	public synchronized void send(int[] keys, boolean[] down, int count) {
+		for (int i = 0; i < count; i++) {
+			events.add(Integer.valueOf(down[i] ? keys[i] : -keys[i]));
+		}
+		calls++;
+	}
+
+	/**
+	 * @return every event sent so far, in order; key-downs
+	 * as the key code, key-ups as the negated key code
+	 */
+	public synchronized List<Integer> getEvents() {
+		return new ArrayList<Integer>(events);
+	}
+
+	/**
+	 * @return number of batches sent so far, which is the
+	 * number of native calls a batching backend would make
+	 */
+	public synchronized int getCalls() {
+		return calls;
+	}
+
+	/**
+	 * Forgets everything recorded so far.
+	 */
+	public synchronized void clear() {
+		events.clear();
+		calls = 0;
+	}
+
+}
@@ -0,0 +1,48 @@
+/**
+ * robotKeyInjector.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.AWTException;
+import java.awt.Robot;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * robotKeyInjector sends each event with its
+ * own Robot call. Portable, but costs one native
+ * round trip per key event.
+ */
+public class robotKeyInjector implements keyInjector {
+
+	private final Robot robot;
+
+	/**
+	 * @throws AWTException  if the platform doesn't allow faked input
+	 */
+	public robotKeyInjector() throws AWTException {
+		robot = new Robot();
+	}
+
+	@Override
+	public void send(int[] keys, boolean[] down, int count) {
+		for (int i = 0; i < count; i++) {
+			if (down[i]) {
+				robot.keyPress(keys[i]);
+			} else {
+				robot.keyRelease(keys[i]);
+			}
+		}
+	}
+
+}
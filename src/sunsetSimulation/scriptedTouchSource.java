@@ -0,0 +1,47 @@
+/**
+ * scriptedTouchSource.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * scriptedTouchSource delivers whatever contacts
+ * it is told to, on the calling thread, so the
+ * overlay's touch handling can be driven without
+ * a touchscreen.
+ */
+public class scriptedTouchSource implements touchSource {
+
+	private volatile listener listener;
+
+	@Override
+	public boolean start(listener l) {
+		listener = l;
+		return true;
+	}
+
+	/**
+	 * @param kind  DOWN, MOVE or UP
+	 * @param x     screen x
+	 * @param y     screen y
+	 * Delivers one contact now.
+	 */
+	public void play(int kind, int x, int y) {
+		listener l = listener;
+		if (l != null) {
+			l.contact(kind, x, y, System.nanoTime());
+		}
+	}
+
+}
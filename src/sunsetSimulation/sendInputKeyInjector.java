@@ -0,0 +1,111 @@
+/**
+ * sendInputKeyInjector.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.event.KeyEvent;
+
+import com.sun.jna.Native;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * sendInputKeyInjector hands a whole batch of
+ * key events to Windows in a single SendInput
+ * call, so releasing every key, or a press and
+ * its release, is one native round trip.
+ * 
+ * KeyEvent virtual key codes are passed straight
+ * through as Windows virtual key codes. That holds
+ * for every key the overlay presses (letters,
+ * digits, arrows, space and the modifiers). Scan
+ * codes are filled in as Robot does, since some
+ * games read those rather than the virtual key.
+ * 
+ * user32 is bound when the injector is made, so a
+ * missing library fails there, where the caller
+ * can fall back to another backend, rather than on
+ * the first key. A batch SendInput only partly
+ * delivers is reported by throwing, which makes
+ * inputInjector treat the batch as failed.
+ */
+public class sendInputKeyInjector implements keyInjector {
+
+	private static final int INPUT_KEYBOARD = 1;
+	private static final int KEYEVENTF_EXTENDEDKEY = 0x0001;
+	private static final int KEYEVENTF_KEYUP = 0x0002;
+	private static final int MAPVK_VK_TO_VSC = 0;
+
+	private final int[] scanCodes = new int[256];
+	private sunsetSimulation.User32.INPUT[] inputs = grow(16);
+
+	/**
+	 * @throws LinkageError if user32 can't be bound
+	 */
+	public sendInputKeyInjector() {
+		// Binds user32 now, rather than on the injector thread
+		scanCode(KeyEvent.VK_SPACE);
+	}
+
+	@Override
+	public void send(int[] keys, boolean[] down, int count) {
+		if (count == 0) {
+			return;
+		}
+		if (count > inputs.length) {
+			inputs = grow(Math.max(count, inputs.length * 2));
+		}
+		for (int i = 0; i < count; i++) {
+			int vk = keys[i] & 0xFF;
+			sunsetSimulation.User32.KEYBDINPUT ki = inputs[i].input.ki;
+			ki.wVk = (short)vk;
+			ki.wScan = (short)scanCode(vk);
+			ki.dwFlags = (isExtended(vk) ? KEYEVENTF_EXTENDEDKEY : 0) | (down[i] ? 0 : KEYEVENTF_KEYUP);
+			ki.time = 0;
+			ki.dwExtraInfo = null;
+			inputs[i].write();
+		}
+		int sent = sunsetSimulation.User32.SendInput(count, inputs[0].getPointer(), inputs[0].size());
+		if (sent != count) {
+			throw new IllegalStateException("SendInput delivered " + sent + " of " + count
+					+ " key events, error " + Native.getLastError());
+		}
+	}
+
+	private int scanCode(int vk) {
+		if (scanCodes[vk] == 0) {
+			scanCodes[vk] = sunsetSimulation.User32.MapVirtualKeyW(vk, MAPVK_VK_TO_VSC);
+		}
+		return scanCodes[vk];
+	}
+
+	/**
+	 * @param vk  Windows virtual key code
+	 * @return whether the key lives on the extended
+	 * part of the keyboard (arrows, navigation block)
+	 */
+	private static boolean isExtended(int vk) {
+		return (vk >= 0x21 && vk <= 0x28) || vk == 0x2D || vk == 0x2E;
+	}
+
+	private static sunsetSimulation.User32.INPUT[] grow(int size) {
+		sunsetSimulation.User32.INPUT[] inputs =
+				(sunsetSimulation.User32.INPUT[]) new sunsetSimulation.User32.INPUT().toArray(size);
+		for (sunsetSimulation.User32.INPUT input : inputs) {
+			input.type = INPUT_KEYBOARD;
+			input.input.setType(sunsetSimulation.User32.KEYBDINPUT.class);
+		}
+		return inputs;
+	}
+
+}
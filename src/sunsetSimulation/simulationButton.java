@@ -12,10 +12,12 @@
  */
 package sunsetSimulation;
 
+import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
 
-import javax.swing.ImageIcon;
-import javax.swing.JLabel;
+import javax.swing.JComponent;
 
 /**
  * @author David Smith
@@ -26,76 +28,109 @@ import javax.swing.JLabel;
  * in sunsetSimulation. Needed mainly to provide
  * additional state information specific to this
  * application, and for convenient asset-switching.
+ * 
+ * Assets are sprites in the overlay's shared
+ * spriteAtlas, one per state. Switching state
+ * only changes which sprite is drawn; the
+ * overlay repaints the button's own bounds.
  */
-public class simulationButton extends JLabel {
+public class simulationButton extends JComponent {
 
 	private static final long serialVersionUID = 1L;
 	public final static int IDLE = 0;
 	public final static int CLICKED = 1;
 	public final static int ACTIVE = 2;
-	public ImageIcon idleIcon;
-	public ImageIcon clickedIcon;
-	public ImageIcon activeIcon;
+	public final spriteAtlas atlas;
+	public final int[] sprites;
 	public int key;
 	public boolean isMomentary;
 	public int curState;
 
 	
 	/**
-	 * @param idleIcon      asset to draw when button is idle
-	 * @param clickedIcon   asset to draw when button is clicked
-	 * @param key           keyboard key to simulate on click
-	 * @param drawPosition  screen position for the button
+	 * @param atlas          atlas holding the button's assets
+	 * @param idleSprite     asset to draw when button is idle
+	 * @param clickedSprite  asset to draw when button is clicked
+	 * @param key            keyboard key to simulate on click
+	 * @param drawPosition   screen position for the button
 	 * Constructor to create a button that has no radio-button
 	 * style behavior, and sends a continuous rather than
 	 * momentary key event.
 	 */
-	public simulationButton(ImageIcon idleIcon, ImageIcon clickedIcon, int key,
+	public simulationButton(spriteAtlas atlas, int idleSprite, int clickedSprite, int key,
 			Rectangle drawPosition) {
-		super(idleIcon);
 		this.isMomentary = false;
-		this.idleIcon = idleIcon;
-		this.clickedIcon = clickedIcon;
+		this.atlas = atlas;
+		this.sprites = new int[]{ idleSprite, clickedSprite, -1 };
 		this.key = key;
 		this.curState = IDLE;
+		setOpaque(false);
 		setBounds(drawPosition);
 	}
 
 	/**
-	 * @param idleIcon      asset to draw when button is idle
-	 * @param clickedIcon   asset to draw when button is clicked
-	 * @param activeIcon    asset to draw when button is selected but not clicked
-	 * @param key           keyboard key to simulate on click
-	 * @param drawPosition  screen position for the button
+	 * @param atlas          atlas holding the button's assets
+	 * @param idleSprite     asset to draw when button is idle
+	 * @param clickedSprite  asset to draw when button is clicked
+	 * @param activeSprite   asset to draw when button is selected but not clicked
+	 * @param key            keyboard key to simulate on click
+	 * @param drawPosition   screen position for the button
 	 * Constructor to create a button that has radio-button
 	 * style behavior, and sends a momentary key event when
 	 * selected.
 	 */
-	public simulationButton(ImageIcon idleIcon, ImageIcon clickedIcon, ImageIcon activeIcon, 
+	public simulationButton(spriteAtlas atlas, int idleSprite, int clickedSprite, int activeSprite,
 			int key, Rectangle drawPosition) {
-		super(idleIcon);
 		this.isMomentary = true;
-		this.idleIcon = idleIcon;
-		this.clickedIcon = clickedIcon;
-		this.activeIcon = activeIcon;
+		this.atlas = atlas;
+		this.sprites = new int[]{ idleSprite, clickedSprite, activeSprite };
 		this.key = key;
 		this.curState = IDLE;
+		setOpaque(false);
 		setBounds(drawPosition);
 	}
 	
 	/**
 	 * @param newState  the state the button is now in
+	 * @return whether the state changed, and the
+	 * button needs repainting
 	 * Setter for button state.
 	 */
-	public void setState(int newState) {
+	public boolean setState(int newState) {
+		if( newState == curState ) {
+			return false;
+		}
 		curState = newState;
-		if( curState == ACTIVE ) {
-			setIcon(activeIcon);
-		} else if( curState == CLICKED ) {
-			setIcon(clickedIcon);
-		} else {
-			setIcon(idleIcon);
+		return true;
+	}
+
+	/**
+	 * @param g  graphics for the button's bounds
+	 * Draws the current state's sprite, centered
+	 * the way a JLabel centers its icon. Sprites are
+	 * pre-scaled to device pixels, so on a scaled
+	 * (high DPI) screen they are drawn in device
+	 * space rather than scaled again by Java2D.
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		int sprite = sprites[curState];
+		if( sprite < 0 ) {
+			return;
+		}
+		Rectangle r = atlas.region(sprite);
+		AffineTransform t = ((Graphics2D)g).getTransform();
+		double pixelScale = t.getScaleX();
+		if( pixelScale == 1 ) {
+			atlas.draw(g, sprite, (getWidth() - r.width) / 2, (getHeight() - r.height) / 2);
+			return;
 		}
+		Graphics2D device = (Graphics2D)g.create();
+		device.setTransform(AffineTransform.getTranslateInstance(
+				Math.round(t.getTranslateX()), Math.round(t.getTranslateY())));
+		atlas.draw(device, sprite, (int)Math.round((getWidth() * pixelScale - r.width) / 2),
+				(int)Math.round((getHeight() * t.getScaleY() - r.height) / 2));
+		device.dispose();
 	}
 	
 }
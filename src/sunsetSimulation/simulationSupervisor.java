@@ -0,0 +1,348 @@
+/**
+ * simulationSupervisor.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * simulationSupervisor launches the closed-source
+ * simulation and keeps it running. If the process
+ * exits for any reason it is launched again, with
+ * a backoff that grows while it keeps failing and
+ * resets once it has stayed up for a while.
+ * 
+ * Each launch is timed until the simulation's
+ * window appears, and restarts are counted, so the
+ * exhibit's health can be checked from outside.
+ * 
+ * All of the work happens on the supervisor's own
+ * thread; start() returns immediately.
+ * 
+ * When several copies of the simulation run side
+ * by side, their windows share a title, so each
+ * supervisor can bind its window by the process
+ * it launched instead.
+ */
+public class simulationSupervisor {
+
+	private static final long windowPollMillis = 50;
+	private static final long windowTimeoutMillis = 120000;
+	private static final long defaultMinBackoffMillis = 1000;
+	private static final long defaultMaxBackoffMillis = 60000;
+	// A launch that lasts this long counts as healthy, resetting the backoff
+	private static final long defaultStableMillis = 60000;
+
+	private final String path;
+	private final String windowName;
+	private final windowResolver windows;
+	private final boolean byProcess;
+	private final long minBackoffMillis;
+	private final long maxBackoffMillis;
+	private final long stableMillis;
+	private final ScheduledExecutorService scheduler;
+	private volatile Process process;
+	private volatile long launchNanos;
+	private volatile long timeToWindowNanos = -1;
+	private volatile int restarts;
+	private volatile boolean stopped;
+	private volatile long backoffMillis;
+
+	/**
+	 * @param path        path to the simulation executable
+	 * @param windowName  start of the simulation's window title
+	 * @param windows     resolver to watch for the window with,
+	 *                    or null to treat a running process as ready
+	 */
+	public simulationSupervisor(String path, String windowName, windowResolver windows) {
+		this(path, windowName, windows, false, "Sunset Simulation supervisor");
+	}
+
+	/**
+	 * @param path        path to the simulation executable
+	 * @param windowName  start of the simulation's window title
+	 * @param windows     resolver to watch for the window with,
+	 *                    or null to treat a running process as ready
+	 * @param byProcess   only accept a window owned by the
+	 *                    launched process
+	 * @param threadName  name of the supervisor thread
+	 */
+	public simulationSupervisor(String path, String windowName, windowResolver windows, boolean byProcess,
+			String threadName) {
+		this(path, windowName, windows, byProcess, threadName, defaultMinBackoffMillis, defaultMaxBackoffMillis,
+				defaultStableMillis);
+	}
+
+	/**
+	 * @param path              path to the simulation executable
+	 * @param windowName        start of the simulation's window title
+	 * @param windows           resolver to watch for the window with,
+	 *                          or null to treat a running process as ready
+	 * @param byProcess         only accept a window owned by the
+	 *                          launched process
+	 * @param threadName        name of the supervisor thread
+	 * @param minBackoffMillis  first wait before relaunching
+	 * @param maxBackoffMillis  longest wait before relaunching
+	 * @param stableMillis      run time that resets the backoff
+	 */
+	simulationSupervisor(String path, String windowName, windowResolver windows, boolean byProcess,
+			final String threadName, long minBackoffMillis, long maxBackoffMillis, long stableMillis) {
+		this.path = path;
+		this.windowName = windowName;
+		this.windows = windows;
+		this.byProcess = byProcess;
+		this.minBackoffMillis = minBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+		this.stableMillis = stableMillis;
+		backoffMillis = minBackoffMillis;
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, threadName);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Launches the simulation in the background.
+	 */
+	public void start() {
+		scheduler.execute(new Runnable() {
+			@Override
+			public void run() { launch(); }
+		});
+	}
+
+	/**
+	 * Kills the running simulation, which is then
+	 * launched again as after any other exit.
+	 */
+	public void restart() {
+		Process p = process;
+		if (p != null) {
+			Iterator<ProcessHandle> children = p.descendants().iterator();
+			while (children.hasNext()) {
+				children.next().destroyForcibly();
+			}
+			p.destroyForcibly();
+		}
+	}
+
+	/**
+	 * Stops supervising, and kills the simulation.
+	 */
+	public void stop() {
+		stopped = true;
+		timeToWindowNanos = -1;
+		restart();
+		scheduler.shutdown();
+	}
+
+	/**
+	 * @return whether the simulation's window is up
+	 */
+	public boolean isReady() {
+		return timeToWindowNanos >= 0;
+	}
+
+	/**
+	 * @return time from the latest launch to the simulation's
+	 * window appearing, in milliseconds, or -1 if it hasn't yet
+	 */
+	public long getTimeToWindowMillis() {
+		long nanos = timeToWindowNanos;
+		return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * @return number of times the simulation was relaunched
+	 */
+	public int getRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * @return how long the next relaunch will wait, in milliseconds,
+	 * unless the current launch stays up long enough to reset it
+	 */
+	long getBackoffMillis() {
+		return backoffMillis;
+	}
+
+	/**
+	 * @return handle of the simulation's window, or 0
+	 */
+	public long window() {
+		if (windows == null) {
+			return 0;
+		}
+		if (!byProcess) {
+			return windows.find(windowName, true);
+		}
+		Process p = process;
+		return p == null ? 0 : windows.find(windowName, true, p.pid());
+	}
+
+	/**
+	 * @return whether the simulation's window was found
+	 * Makes the simulation's window the foreground
+	 * window, unless it already is.
+	 */
+	public boolean bringToFront() {
+		if (windows == null) {
+			return false;
+		}
+		if (!byProcess) {
+			return windows.bringToFront(windowName, true);
+		}
+		Process p = process;
+		return p != null && windows.bringToFront(windowName, true, p.pid());
+	}
+
+	/**
+	 * @return the running simulation process, or null
+	 */
+	public Process getProcess() {
+		return process;
+	}
+
+	private void launch() {
+		if (stopped) {
+			return;
+		}
+		File executable = new File(path);
+		ProcessBuilder builder = new ProcessBuilder(executable.getPath());
+		if (executable.getParentFile() != null) {
+			builder.directory(executable.getParentFile());
+		}
+		builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+		builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+		timeToWindowNanos = -1;
+		launchNanos = System.nanoTime();
+		final Process p;
+		try {
+			p = builder.start();
+		} catch (IOException e) {
+			e.printStackTrace();
+			scheduleRelaunch(0);
+			return;
+		}
+		process = p;
+		p.onExit().thenRun(new Runnable() {
+			@Override
+			public void run() { exited(p); }
+		});
+		pollForWindow(p);
+	}
+
+	/**
+	 * @param p  the process whose window is awaited
+	 * Checks for the simulation's window until it
+	 * appears, the process exits, or it times out.
+	 */
+	private void pollForWindow(final Process p) {
+		if (stopped || p != process || !p.isAlive()) {
+			return;
+		}
+		long elapsed = System.nanoTime() - launchNanos;
+		if (windows == null || window() != 0) {
+			timeToWindowNanos = elapsed;
+			bringToFront();
+			return;
+		}
+		if (TimeUnit.NANOSECONDS.toMillis(elapsed) > windowTimeoutMillis) {
+			System.err.println("Simulation window never appeared, restarting");
+			restart();
+			return;
+		}
+		schedule(new Runnable() {
+			@Override
+			public void run() { pollForWindow(p); }
+		}, windowPollMillis);
+	}
+
+	/**
+	 * @param p  the process that exited
+	 * Called on a JDK thread when the process ends,
+	 * which is also how a process killed by stop()
+	 * ends, so it may come after the scheduler has
+	 * shut down.
+	 */
+	private void exited(final Process p) {
+		schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (p != process) {
+					return;
+				}
+				process = null;
+				timeToWindowNanos = -1;
+				if (windows != null) {
+					windows.invalidate(windowName);
+					windows.invalidate(p.pid());
+				}
+				long ran = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launchNanos);
+				System.err.println("Simulation exited with " + p.exitValue() + " after " + ran + " ms");
+				scheduleRelaunch(ran);
+			}
+		}, 0);
+	}
+
+	/**
+	 * @param ranMillis  how long the previous launch lasted
+	 */
+	private void scheduleRelaunch(long ranMillis) {
+		if (stopped) {
+			return;
+		}
+		if (ranMillis >= stableMillis) {
+			backoffMillis = minBackoffMillis;
+		}
+		long delay = backoffMillis;
+		backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+		restarts++;
+		schedule(new Runnable() {
+			@Override
+			public void run() { launch(); }
+		}, delay);
+	}
+
+	/**
+	 * @param task         what to run on the supervisor's thread
+	 * @param delayMillis  how long to wait first
+	 * Does nothing once stopped, rather than have the
+	 * shut down scheduler reject the task.
+	 */
+	private void schedule(Runnable task, long delayMillis) {
+		if (stopped) {
+			return;
+		}
+		try {
+			scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// stop() got in between
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+/**
+ * spriteAtlas.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * spriteAtlas packs every button image into a
+ * single screen-compatible image, so the overlay
+ * keeps one pixel buffer instead of dozens of
+ * icons. Each packed image (sprite) is addressed
+ * by the index it was passed in at, and drawn by
+ * copying its sub-rectangle of the atlas.
+ * 
+ * Packing is by shelves: sprites are sorted by
+ * height and laid out left to right in rows no
+ * wider than maxWidth.
+ */
+public class spriteAtlas {
+
+	private static final int maxWidth = 1024;
+
+	private final BufferedImage atlas;
+	private final Rectangle[] regions;
+
+	/**
+	 * @param gc       screen the atlas will be drawn on, or null
+	 * @param sprites  images to pack, in sprite index order
+	 */
+	public spriteAtlas(GraphicsConfiguration gc, BufferedImage[] sprites) {
+		Integer[] order = new Integer[sprites.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = Integer.valueOf(i);
+		}
+		final BufferedImage[] images = sprites;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return images[b.intValue()].getHeight() - images[a.intValue()].getHeight();
+			}
+		});
+		regions = new Rectangle[sprites.length];
+		int x = 0;
+		int y = 0;
+		int shelfHeight = 0;
+		int width = 1;
+		for (Integer index : order) {
+			BufferedImage sprite = sprites[index.intValue()];
+			if (x > 0 && x + sprite.getWidth() > maxWidth) {
+				x = 0;
+				y += shelfHeight;
+				shelfHeight = 0;
+			}
+			regions[index.intValue()] = new Rectangle(x, y, sprite.getWidth(), sprite.getHeight());
+			x += sprite.getWidth();
+			width = Math.max(width, x);
+			shelfHeight = Math.max(shelfHeight, sprite.getHeight());
+		}
+		int height = Math.max(1, y + shelfHeight);
+		atlas = gc != null
+				? gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+				: new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = atlas.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		for (int i = 0; i < sprites.length; i++) {
+			g.drawImage(sprites[i], regions[i].x, regions[i].y, null);
+		}
+		g.dispose();
+	}
+
+	/**
+	 * @param sprite  sprite index
+	 * @return where the sprite sits in the atlas
+	 */
+	public Rectangle region(int sprite) {
+		return regions[sprite];
+	}
+
+	/**
+	 * @param g       graphics to draw into
+	 * @param sprite  sprite index
+	 * @param x       left edge to draw at
+	 * @param y       top edge to draw at
+	 * Copies the sprite's pixels at their own size.
+	 */
+	public void draw(Graphics g, int sprite, int x, int y) {
+		Rectangle r = regions[sprite];
+		g.drawImage(atlas, x, y, x + r.width, y + r.height,
+				r.x, r.y, r.x + r.width, r.y + r.height, null);
+	}
+
+	/**
+	 * @return the packed image
+	 */
+	public BufferedImage getImage() {
+		return atlas;
+	}
+
+}
@@ -0,0 +1,156 @@
+/**
+ * station.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * station is one exhibit station: a screen, the
+ * copy of the simulation shown on it, and the
+ * overlay window over it.
+ * 
+ * Normally there is just the one, on the default
+ * screen. Run with -DsunsetSimulation.stations=N
+ * (or =all) to host a station on each of the
+ * first N screens from the one overlay process.
+ * Stations are numbered from 1, in the order
+ * Java lists the screens.
+ * 
+ * Hosted stations read their options as
+ * -DsunsetSimulation.station.<n>.<option>=...
+ * first, then as the usual
+ * -DsunsetSimulation.<option>=... shared by all.
+ */
+public class station {
+
+	public final int number;
+	public final boolean hosted;
+	public final GraphicsConfiguration screen;
+	public final String simulationName;
+	public final String simulationPath;
+	public final String overlayName;
+
+	/**
+	 * @param number  the station's number, from 1
+	 * @param hosted  whether it is one of several
+	 * @param screen  the screen it is shown on
+	 * @param ourName         title of the overlay window
+	 * @param simulationName  start of the simulation's window title
+	 * @param simulationPath  path to the simulation executable
+	 */
+	station(int number, boolean hosted, GraphicsConfiguration screen, String ourName, String simulationName,
+			String simulationPath) {
+		this.number = number;
+		this.hosted = hosted;
+		this.screen = screen;
+		this.simulationName = property("simulationName", simulationName);
+		this.simulationPath = property("simulationPath", simulationPath);
+		overlayName = hosted ? ourName + " [" + number + "]" : ourName;
+	}
+
+	/**
+	 * @param ourName         title of the overlay window
+	 * @param simulationName  start of the simulation's window title
+	 * @param simulationPath  path to the simulation executable
+	 * @return the stations to run, one per screen
+	 */
+	public static List<station> configured(String ourName, String simulationName, String simulationPath) {
+		GraphicsEnvironment env = GraphicsEnvironment.getLocalGraphicsEnvironment();
+		List<station> stations = new ArrayList<station>();
+		String count = System.getProperty("sunsetSimulation.stations");
+		if (count == null) {
+			stations.add(new station(1, false, env.getDefaultScreenDevice().getDefaultConfiguration(),
+					ourName, simulationName, simulationPath));
+			return stations;
+		}
+		GraphicsDevice[] screens = env.getScreenDevices();
+		int n = "all".equalsIgnoreCase(count) ? screens.length : Integer.parseInt(count);
+		if (n > screens.length) {
+			System.err.println(n + " stations asked for, but only " + screens.length + " screens");
+			n = screens.length;
+		}
+		for (int i = 0; i < n; i++) {
+			stations.add(new station(i + 1, true, screens[i].getDefaultConfiguration(),
+					ourName, simulationName, simulationPath));
+		}
+		return stations;
+	}
+
+	/**
+	 * @param name      the option, without the sunsetSimulation. prefix
+	 * @param fallback  value if the option isn't set
+	 * @return the station's value for the option
+	 */
+	public String property(String name, String fallback) {
+		String value = hosted ? System.getProperty("sunsetSimulation.station." + number + "." + name) : null;
+		return value != null ? value : System.getProperty("sunsetSimulation." + name, fallback);
+	}
+
+	/**
+	 * @param name  the option, without the sunsetSimulation. prefix
+	 * @return the station's value for the option, or null
+	 */
+	public String property(String name) {
+		return property(name, null);
+	}
+
+	/**
+	 * @param name  the option, without the sunsetSimulation. prefix
+	 * @return the station's value for an option naming a
+	 * file or directory, or null
+	 * A hosted station that has no value of its own
+	 * gets the shared one with -<n> appended, so the
+	 * stations never write to the same file.
+	 */
+	public String path(String name) {
+		String own = hosted ? System.getProperty("sunsetSimulation.station." + number + "." + name) : null;
+		if (own != null) {
+			return own;
+		}
+		String shared = System.getProperty("sunsetSimulation." + name);
+		return shared != null && hosted ? shared + "-" + number : shared;
+	}
+
+	/**
+	 * @param name  the option, without the sunsetSimulation. prefix
+	 * @return the station's port for an option naming
+	 * one, or null
+	 * A hosted station that has no port of its own
+	 * takes the shared one plus its number less one,
+	 * so station 1 keeps the shared port.
+	 */
+	public Integer port(String name) {
+		String own = hosted ? System.getProperty("sunsetSimulation.station." + number + "." + name) : null;
+		if (own != null) {
+			return Integer.valueOf(own);
+		}
+		Integer shared = Integer.getInteger("sunsetSimulation." + name);
+		return shared != null && hosted ? Integer.valueOf(shared.intValue() + number - 1) : shared;
+	}
+
+	/**
+	 * @return a name for the station in logs and
+	 * reports, or null when there is only one
+	 */
+	public String getName() {
+		return hosted ? Integer.toString(number) : null;
+	}
+
+}
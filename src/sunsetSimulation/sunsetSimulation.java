@@ -27,50 +27,81 @@ package sunsetSimulation;
 
 import java.awt.AWTException;
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.EventQueue;
 import java.awt.Frame;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsDevice.WindowTranslucency;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.Shape;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
-import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
-import javax.swing.ImageIcon;
 
-import java.awt.Robot;
 import java.awt.Toolkit;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import com.sun.jna.Library;
 import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
 import com.sun.jna.Pointer;
+import com.sun.jna.Structure;
+import com.sun.jna.Union;
 import com.sun.jna.win32.StdCallLibrary;
 
 /**
  * @author David Smith
  * @version 1.0
  * 
- * sunsetSimulation creates the fullscreen
- * transparent overlay, adds clickable buttons,
- * takes focus, hides the mouse, and executes the
- * original simulation.
+ * sunsetSimulation creates the fullscreen (or
+ * button-shaped) transparent overlay, adds
+ * clickable buttons, takes focus, hides the
+ * mouse, and executes the original simulation.
  * 
  * Button clicks cause keypress events to be faked
- * via the Robot class and passed to the simulation
- * executable.
+ * via SendInput (or the Robot class, elsewhere) and
+ * passed to the simulation executable.
  * 
- * Takes focus after ten seconds without input, to
+ * Takes focus back whenever another window grabs
+ * it, and after ten seconds without input, to
  * ensure a zero-maintenance kiosk state even in
  * unexpected circumstances.
  * 
+ * One overlay process can host several stations,
+ * one per screen, each with its own simulation,
+ * overlay window and button state (see station).
+ * They share the layout, the assets, the native
+ * bindings and the thread that fakes key events,
+ * which takes turns between the stations so a
+ * busy one can't hold the others up. Keyboard
+ * focus is still one per machine, so each batch
+ * of key events first moves focus to its own
+ * station's simulation.
+ * 
  * Focus and keypress passing are handled via JNA,
  * and make this software compatible with Microsoft
  * Windows only.
@@ -78,38 +109,104 @@ import com.sun.jna.win32.StdCallLibrary;
 public class sunsetSimulation extends JFrame {
 
 	private static final long serialVersionUID = 1L;
+	public final static int FULLSCREEN = 0;
+	public final static int SHAPED = 1;
 	private static final String ourName = "Sunset Simulation Button Overlay";
 	private static final String simulationName = "Sunset Eruption Sony No Skybox";
 	private static final String simulationPath = "C:/ERUPTION SEQUENCE/" + simulationName + ".exe";
-	private static final int simulationWidth = 1360;
-	private static final int simulationHeight = 768;
-	private static final int[] pressableKeys = new int[]{
-			KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_UP, KeyEvent.VK_DOWN,
-			KeyEvent.VK_5, KeyEvent.VK_C, KeyEvent.VK_CONTROL, KeyEvent.VK_ALT,
-			KeyEvent.VK_SPACE, KeyEvent.VK_SHIFT, KeyEvent.VK_X
-	};
+	private static final long keyPulseNanos = 100000000L;
+	private static final long idleCheckNanos = 10000000000L;
+	static final int clickFrameMillis = 16;
+	private static final long healthPeriodNanos = 2000000000L;
+	private static final long healthBudgetNanos = 50000000L;
+	private static final long frameStaleNanos = 30000000000L;
+	private static final long journalBytes = 4L << 20;
+	static final String layoutPath = "assets/layout.txt";
+	private static final windowResolver windows = new windowResolver(new user32WindowTable());
+	private static final injectorThread injection = new injectorThread();
+	private static final List<sunsetSimulation> allStations = new CopyOnWriteArrayList<sunsetSimulation>();
+	private final station home;
 	private JPanel contentPane;
-	private simulationButton activeButton;
-	private simulationButton clickedButton;
-	private Timer ifaceTimer;
-	private Timer keyTimer;
+	private buttonLayout layout;
+	private String[] assetPaths;
+	private spriteAtlas atlas;
+	private dirtyRegions repaints;
+	private clickStateMachine clicks;
+	private buttonController controller;
+	private foregroundWatchdog watchdog;
+	private final simulationSupervisor supervisor;
+	private healthMonitor health;
+	private inputInjector injector;
+	private pressedKeySet pressedKeys;
+	private keyStateSource keyState;
+	private latencyStats latency;
+	private interactionJournal journal;
+	private pointerTouchSource touches;
+	private final Map<String, simulationButton> buttonsById = new HashMap<String, simulationButton>();
+	private controlServer control;
 	
 	/**
 	 * @param args  Command-line arguments, discarded.
-	 * Launch the application.
+	 * Launch the application. The simulation launch,
+	 * native library loading and asset decoding all
+	 * run while the EDT builds the overlay, which
+	 * only waits for the assets when it places the
+	 * buttons. See bootSequence for boot timing.
 	 */
 	public static void main(String[] args) {
+		final bootSequence boot = new bootSequence();
+		final List<station> stations = station.configured(ourName, simulationName, simulationPath);
+		final List<simulationSupervisor> supervisors = new ArrayList<simulationSupervisor>();
+		for (station s : stations) {
+			supervisors.add(startTheSimulation(s));
+		}
+		startNative(boot);
+		final buttonLayout layout;
+		try {
+			layout = buttonLayout.load(sunsetSimulation.class, layoutPath);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		// Stations whose screens draw the layout at the same scale share an atlas
+		final Map<Double, Future<spriteAtlas>> atlases = new HashMap<Double, Future<spriteAtlas>>();
+		for (station s : stations) {
+			Double scale = Double.valueOf(atlasScale(layout, s.screen));
+			if (!atlases.containsKey(scale)) {
+				String name = atlases.isEmpty() ? "assets" : "assets " + (atlases.size() + 1);
+				atlases.put(scale, startAssets(boot, name, layout, s.screen, assetLoader.defaultCacheDir(),
+						scale.doubleValue()));
+			}
+		}
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
 				try {
-					sunsetSimulation frame = new sunsetSimulation();
-					frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-					frame.setUndecorated(true);
-					frame.setBackground(new Color(0, 0, 0, 1));
-					frame.setAlwaysOnTop(true);
-					frame.setExtendedState(JFrame.MAXIMIZED_BOTH);
-					frame.setTitle(ourName);
-					frame.setVisible(true);
+					boot.begin("ui");
+					for (int i = 0; i < stations.size(); i++) {
+						station s = stations.get(i);
+						sunsetSimulation frame = new sunsetSimulation(s, layout, supervisors.get(i),
+								atlases.get(Double.valueOf(atlasScale(layout, s.screen))));
+						frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+						frame.setUndecorated(true);
+						frame.setBackground(new Color(0, 0, 0, 1));
+						frame.setAlwaysOnTop(true);
+						frame.setBounds(s.screen.getBounds());
+						frame.setExtendedState(JFrame.MAXIMIZED_BOTH);
+						frame.setTitle(s.overlayName);
+						if (overlayMode(s.screen.getDevice()) == SHAPED) {
+							frame.setShape(frame.overlayShape());
+						}
+						frame.setVisible(true);
+						frame.startTouchInput();
+					}
+					boot.end("ui");
+					boolean inBudget = boot.finish();
+					if (Boolean.getBoolean("sunsetSimulation.exitAfterBoot")) {
+						for (simulationSupervisor supervisor : supervisors) {
+							supervisor.stop();
+						}
+						System.exit(inBudget ? 0 : 1);
+					}
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
@@ -118,9 +215,185 @@ public class sunsetSimulation extends JFrame {
 	}
 
 	/**
+	 * @param boot  the boot being timed
+	 * @return the native warm-up, once it is done
+	 * Starts warmUpNative as the "native" boot stage.
+	 */
+	static Future<Void> startNative(bootSequence boot) {
+		return boot.stage("native", new Callable<Void>() {
+			@Override
+			public Void call() {
+				warmUpNative();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @param boot      the boot being timed
+	 * @param name      name of the boot stage
+	 * @param layout    the button layout
+	 * @param gc        the screen the assets are drawn on, or null
+	 * @param cacheDir  directory for decoded images, or null
+	 * @param scale     the scale to decode the assets at
+	 * @return the atlas, once it is loaded
+	 * Starts loadAtlas as a boot stage.
+	 */
+	static Future<spriteAtlas> startAssets(bootSequence boot, String name, final buttonLayout layout,
+			final GraphicsConfiguration gc, final File cacheDir, final double scale) {
+		return boot.stage(name, new Callable<spriteAtlas>() {
+			@Override
+			public spriteAtlas call() { return loadAtlas(layout, gc, cacheDir, scale); }
+		});
+	}
+
+	/**
+	 * Loads user32 and binds its functions, so the
+	 * first touch doesn't pay for it.
+	 */
+	protected static void warmUpNative() {
+		if (onWindows()) {
+			User32.GetForegroundWindow();
+		} else {
+			Native.getDefaultStringEncoding();
+		}
+	}
+
+	/**
+	 * @param layout    the button layout
+	 * @param gc        the screen the assets are drawn on, or
+	 *                  null for no screen
+	 * @param cacheDir  directory for decoded images, or null
+	 * @param scale     the scale to decode the assets at, as
+	 *                  atlasScale gives for the screen
+	 * @return every asset the layout uses, decoded at
+	 * that scale and packed into one atlas
+	 */
+	protected static spriteAtlas loadAtlas(buttonLayout layout, GraphicsConfiguration gc, File cacheDir,
+			double scale) {
+		assetLoader assets = new assetLoader(sunsetSimulation.class, gc, cacheDir, scale);
+		String[] paths = layout.assetPaths();
+		assets.preload(paths);
+		BufferedImage[] sprites = new BufferedImage[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			sprites[i] = assets.image(paths[i]);
+		}
+		spriteAtlas atlas = new spriteAtlas(gc, sprites);
+		assets.finish();
+		return atlas;
+	}
+
+	/**
+	 * @param layout  the button layout
+	 * @param gc      the screen the layout is drawn on
+	 * @return the scale the assets are decoded at,
+	 * in device pixels
+	 */
+	protected static double atlasScale(buttonLayout layout, GraphicsConfiguration gc) {
+		return layoutScale(layout, gc.getBounds().getSize()) * gc.getDefaultTransform().getScaleX();
+	}
+
+	/**
+	 * @param screen  the screen the overlay is shown on
+	 * @return how the overlay window covers the screen
+	 * FULLSCREEN (the default) is one translucent
+	 * window over the whole screen. SHAPED cuts the
+	 * window down to the button clusters, so the
+	 * compositor only blends those and everything
+	 * else goes straight to the simulation. Chosen
+	 * with -DsunsetSimulation.overlayMode=shaped,
+	 * where the platform supports shaped windows.
+	 */
+	public static int overlayMode(GraphicsDevice screen) {
+		if (!"shaped".equalsIgnoreCase(System.getProperty("sunsetSimulation.overlayMode"))) {
+			return FULLSCREEN;
+		}
+		if (!screen.isWindowTranslucencySupported(WindowTranslucency.PERPIXEL_TRANSPARENT)) {
+			System.err.println("Shaped windows unsupported, using a fullscreen overlay");
+			return FULLSCREEN;
+		}
+		return SHAPED;
+	}
+
+	/**
+	 * @return the parts of the window the buttons
+	 * cover, in window coordinates
+	 */
+	public Shape overlayShape() {
+		Area shape = new Area();
+		for (Component button : contentPane.getComponents()) {
+			Rectangle bounds = button.getBounds();
+			bounds.translate(contentPane.getX(), contentPane.getY());
+			shape.add(new Area(bounds));
+		}
+		return shape;
+	}
+
+	/**
+	 * Reads touches straight from the touchscreen,
+	 * when it can, instead of waiting for Windows to
+	 * turn them into mouse events. The mouse
+	 * listeners stay in place either way: they are
+	 * the fallback where raw touch isn't available,
+	 * and still serve a real mouse. Run with
+	 * -DsunsetSimulation.touchInput=mouse to use the
+	 * mouse path alone, to compare the two; the
+	 * window procedure still goes in, to stamp the
+	 * mouse messages with the OS's input time.
+	 */
+	public void startTouchInput() {
+		boolean touch = !"mouse".equalsIgnoreCase(System.getProperty("sunsetSimulation.touchInput"));
+		List<simulationButton> buttons = new ArrayList<simulationButton>();
+		for (Component button : contentPane.getComponents()) {
+			if (button instanceof simulationButton) {
+				buttons.add((simulationButton)button);
+			}
+		}
+		touches = new pointerTouchSource(this, touch);
+		if (!touches.start(new touchRouter(buttons, clicks, latency))) {
+			if (touch) {
+				System.err.println("Raw touch unavailable, using mouse events");
+			}
+			touches = null;
+		}
+	}
+
+	/**
+	 * @param layout      the button layout
+	 * @param screenSize  size of the screen the layout fills
+	 * @return the scale to draw the layout at
+	 * The layout is scaled to fit the screen, keeping
+	 * its proportions. The scale can be pinned, EG to
+	 * 1 for the design size, with
+	 * -DsunsetSimulation.layoutScale=...
+	 */
+	protected static double layoutScale(buttonLayout layout, Dimension screenSize) {
+		String pinned = System.getProperty("sunsetSimulation.layoutScale");
+		if (pinned != null) {
+			return Double.parseDouble(pinned);
+		}
+		return layout.scaleToFit(screenSize);
+	}
+
+	/**
+	 * @param home        the station this overlay drives
+	 * @param layout      the button layout
+	 * @param supervisor  the already-launched simulation's supervisor
+	 * @param atlas       the layout's assets, being decoded
 	 * Constructor, see class documentation.
 	 */
-	public sunsetSimulation() {
+	public sunsetSimulation(station home, buttonLayout layout, simulationSupervisor supervisor,
+			Future<spriteAtlas> atlas) throws InterruptedException, ExecutionException {
+		super(home.screen);
+		this.home = home;
+		this.layout = layout;
+		this.supervisor = supervisor;
+		allStations.add(this);
+		assetPaths = layout.assetPaths();
+		Dimension screenSize = home.screen.getBounds().getSize();
+		double scale = layoutScale(layout, screenSize);
+		pressedKeys = new pressedKeySet(layout.keys());
+
 		JPanel parentPane = new JPanel();
 		parentPane.setBorder(new EmptyBorder(0, 0, 0, 0));
 		parentPane.setLayout(null);
@@ -129,13 +402,20 @@ public class sunsetSimulation extends JFrame {
 		contentPane.setBorder(new EmptyBorder(0, 0, 0, 0));
 		contentPane.setOpaque(false);
 		contentPane.setLayout(null);
-		Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+		Dimension contentSize = layout.size(scale);
 		double contentXOff = screenSize.getWidth();
 		double contentYOff = screenSize.getHeight();
-		contentXOff = ((contentXOff - simulationWidth) / 2);
-		contentYOff = ((contentYOff - simulationHeight) / 2);
-		contentPane.setBounds( (int)contentXOff, (int)contentYOff, simulationWidth, simulationHeight );
+		contentXOff = ((contentXOff - contentSize.width) / 2);
+		contentYOff = ((contentYOff - contentSize.height) / 2);
+		contentPane.setBounds( (int)contentXOff, (int)contentYOff, contentSize.width, contentSize.height );
 		parentPane.add(contentPane);
+		repaints = new dirtyRegions(contentPane);
+		clicks = new clickStateMachine(new clickStateMachine.sink() {
+			@Override
+			public void click(simulationButton button, boolean released, long touchNanos) {
+				controller.click(button, released, touchNanos);
+			}
+		}, clickFrameMillis);
 		
 		// Make the mouse invisible
 		BufferedImage cursorImg = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
@@ -143,136 +423,177 @@ public class sunsetSimulation extends JFrame {
 		    cursorImg, new Point(0, 0), "blank cursor");
 		parentPane.setCursor(blankCursor);
 		
-		// Timer that checks focus every ten idle seconds
-		ActionListener interfaceChecker = new ActionListener() {
+		// Thread that fakes key events, and lifts keys
+		// after a momentary delay for radio buttons
+		latency = new latencyStats(layout.keys());
+		latency.publish(home.getName(), home.path("latencyDump"));
+		journal = openJournal();
+		injector = new inputInjector(createKeyInjector(), pressedKeys, createPulseScheduler(layout.keys()), latency, journal,
+				new Runnable() {
+					@Override
+					public void run() { checkForeground(); }
+				}, injection);
+		// The OS key state is shared by every station, so a
+		// hosted station only releases the keys it pressed
+		if (onWindows() && !home.hosted) {
+			keyState = new user32KeyStateSource();
+		}
+
+		// Watchdog that keeps focus right, reacting to focus
+		// changes and checking again every ten idle seconds
+		watchdog = new foregroundWatchdog(new foregroundWatchdog.target() {
 			@Override
-			public void actionPerformed(ActionEvent arg0) {
-				setState(Frame.NORMAL);
-				setForegroundWindowByName(ourName, true);
-				try {
-					Thread.sleep(10);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-				checkForeground();
-				allKeysUp();
-			}
-		};
-		ifaceTimer = new Timer(10000, interfaceChecker);
-		ifaceTimer.setRepeats(true);
-		ifaceTimer.start();
-		
-		// Timer that lifts key after momentary delay for radio buttons
-		ActionListener keyLifter = new ActionListener() {
+			public boolean isOurs(long hWnd) { return isStation(hWnd); }
 			@Override
-			public void actionPerformed(ActionEvent arg0) {
-				if(clickedButton != null) { liftKey(clickedButton.key); }
+			public void raiseOverlay(Runnable raised) {
+				sunsetSimulation.raiseOverlay(new Runnable() {
+					@Override
+					public void run() { setState(Frame.NORMAL); }
+				}, new Runnable() {
+					@Override
+					public void run() { setForegroundWindowByName(home.overlayName, true); }
+				}, raised);
 			}
-		};
-		keyTimer = new Timer(100, keyLifter);
-		keyTimer.setRepeats(false);
-
-		ImageIcon leftIconIdle = createImageIcon("assets/left_icon_idle.png", "Spin left");
-		ImageIcon leftIconClicked = createImageIcon("assets/left_icon_clicked.png", "Spinning left");
-		simulationButton btnLeft = new simulationButton(leftIconIdle, leftIconClicked,
-				KeyEvent.VK_RIGHT, new Rectangle(0, 0, 100, 100));
-		addClickListeners(btnLeft);
-		contentPane.add(btnLeft);
-
-		ImageIcon rightIconIdle = createImageIcon("assets/right_icon_idle.png", "Spin right");
-		ImageIcon rightIconClicked = createImageIcon("assets/right_icon_clicked.png", "Spinning right");
-		simulationButton btnRight = new simulationButton(rightIconIdle, rightIconClicked,
-				KeyEvent.VK_LEFT, new Rectangle(100, 0, 100, 100));
-		addClickListeners(btnRight);
-		contentPane.add(btnRight);
-
-		ImageIcon upIconIdle = createImageIcon("assets/up_icon_idle.png", "Pan up");
-		ImageIcon upIconClicked = createImageIcon("assets/up_icon_clicked.png", "Panning up");
-		simulationButton btnUp = new simulationButton(upIconIdle, upIconClicked,
-				KeyEvent.VK_UP, new Rectangle(0, 100, 100, 120));
-		addClickListeners(btnUp);
-		contentPane.add(btnUp);
-
-		ImageIcon downIconIdle = createImageIcon("assets/down_icon_idle.png", "Pan down");
-		ImageIcon downIconClicked = createImageIcon("assets/down_icon_clicked.png", "Panning down");
-		simulationButton btnDown = new simulationButton(downIconIdle, downIconClicked,
-				KeyEvent.VK_DOWN, new Rectangle(100, 100, 100, 120));
-		addClickListeners(btnDown);
-		contentPane.add(btnDown);
-
-		ImageIcon inIconIdle = createImageIcon("assets/in_icon_idle.png", "Zoom in");
-		ImageIcon inIconClicked = createImageIcon("assets/in_icon_clicked.png", "Zooming in");
-		simulationButton btnIn = new simulationButton(inIconIdle, inIconClicked,
-				KeyEvent.VK_5, new Rectangle(0, 220, 100, 150));
-		addClickListeners(btnIn);
-		contentPane.add(btnIn);
-
-		ImageIcon outIconIdle = createImageIcon("assets/out_icon_idle.png", "Zoom out");
-		ImageIcon outIconClicked = createImageIcon("assets/out_icon_clicked.png", "Zooming out");
-		simulationButton btnOut = new simulationButton(outIconIdle, outIconClicked,
-				KeyEvent.VK_C, new Rectangle(100, 220, 100, 150));
-		addClickListeners(btnOut);
-		contentPane.add(btnOut);
-
-		// Position of the timeline vertically
-		int timelineOffset = ((simulationWidth - 938) / 2);
-		
-		ImageIcon tSummIconIdle = createImageIcon("assets/timeline_summ_idle.png", "Start entire eruption");
-		ImageIcon tSummIconClicked = createImageIcon("assets/timeline_summ_clicked.png", "Selected entire eruption");
-		ImageIcon tSummIconActive = createImageIcon("assets/timeline_summ_active.png", "Playing entire eruption");
-		simulationButton btnSummary = new simulationButton(tSummIconIdle, tSummIconClicked, tSummIconActive,
-				KeyEvent.VK_X, new Rectangle(timelineOffset, 525, 168, 200));
-		addClickListeners(btnSummary);
-		contentPane.add(btnSummary);
-		
-		ImageIcon tPreIconIdle = createImageIcon("assets/timeline_pre_idle.png", "Start pre-eruption");
-		ImageIcon tPreIconClicked = createImageIcon("assets/timeline_pre_clicked.png", "Selected pre-eruption");
-		ImageIcon tPreIconActive = createImageIcon("assets/timeline_pre_active.png", "Playing pre-eruption");
-		simulationButton btnPreStage = new simulationButton(tPreIconIdle, tPreIconClicked, tPreIconActive,
-				KeyEvent.VK_CONTROL, new Rectangle((timelineOffset + 168), 525, 197, 200));
-		addClickListeners(btnPreStage);
-		contentPane.add(btnPreStage);
-
-		ImageIcon tStage1IconIdle = createImageIcon("assets/timeline_stage1_idle.png", "Start fissure eruption");
-		ImageIcon tStage1IconClicked = createImageIcon("assets/timeline_stage1_clicked.png", "Selected fissure eruption");
-		ImageIcon tStage1IconActive = createImageIcon("assets/timeline_stage1_active.png", "Playing fissure eruption");
-		simulationButton btnStage1 = new simulationButton(tStage1IconIdle, tStage1IconClicked, tStage1IconActive,
-				KeyEvent.VK_ALT, new Rectangle((timelineOffset + 365), 525, 188, 200));
-		addClickListeners(btnStage1);
-		contentPane.add(btnStage1);
-
-		ImageIcon tStage2IconIdle = createImageIcon("assets/timeline_stage2_idle.png", "Start cone building");
-		ImageIcon tStage2IconClicked = createImageIcon("assets/timeline_stage2_clicked.png", "Selected cone building");
-		ImageIcon tStage2IconActive = createImageIcon("assets/timeline_stage2_active.png", "Playing cone building");
-		simulationButton btnStage2 = new simulationButton(tStage2IconIdle, tStage2IconClicked, tStage2IconActive,
-				KeyEvent.VK_SPACE, new Rectangle((timelineOffset + 553), 525, 197, 200));
-		addClickListeners(btnStage2);
-		contentPane.add(btnStage2);
-
-		ImageIcon tStage3IconIdle = createImageIcon("assets/timeline_stage3_idle.png", "Start lava flows");
-		ImageIcon tStage3IconClicked = createImageIcon("assets/timeline_stage3_clicked.png", "Selected lava flows");
-		ImageIcon tStage3IconActive = createImageIcon("assets/timeline_stage3_active.png", "Playing lava flows");
-		simulationButton btnStage3 = new simulationButton(tStage3IconIdle, tStage3IconClicked, tStage3IconActive,
-				KeyEvent.VK_SHIFT, new Rectangle((timelineOffset + 750), 525, 188, 200));
-		addClickListeners(btnStage3);
-		contentPane.add(btnStage3);
-
-		startTheSimulation();
+			@Override
+			public void focusSimulation() { checkForeground(); }
+			@Override
+			public void releaseKeys() { allKeysUp(); }
+		}, onWindows() ? new user32ForegroundEventSource() : null, idleCheckNanos);
+		watchdog.start();
+
+		// The buttons' own logic, fed by the click state machine
+		controller = new buttonController(injector, latency, journal, repaints, new Runnable() {
+			@Override
+			public void run() { watchdog.touch(); }
+		});
+
+		// Probes that restart a simulation that has stopped responding
+		health = new healthMonitor(new healthMonitor.target() {
+			@Override
+			public boolean isUp() { return supervisor.isReady(); }
+			@Override
+			public long window() { return supervisor.window(); }
+			@Override
+			public void restart() { supervisor.restart(); }
+		}, createHealthProbes(), healthBudgetNanos, healthPeriodNanos);
+		health.start();
+
+		// Everything else is up; wait for the assets
+		this.atlas = atlas.get();
+
+		for (buttonLayout.entry entry : layout.getEntries()) {
+			simulationButton button = entry.radio
+					? new simulationButton(this.atlas, sprite(entry.asset(simulationButton.IDLE)),
+							sprite(entry.asset(simulationButton.CLICKED)),
+							sprite(entry.asset(simulationButton.ACTIVE)), entry.key, layout.bounds(entry, scale))
+					: new simulationButton(this.atlas, sprite(entry.asset(simulationButton.IDLE)),
+							sprite(entry.asset(simulationButton.CLICKED)), entry.key, layout.bounds(entry, scale));
+			addClickListeners(button);
+			contentPane.add(button);
+			buttonsById.put(entry.id, button);
+		}
+
+		startRecording();
+		startControlServer();
 	}
 
 	/**
-	 * Handles creation of the separate execution
-	 * environment for the closed-source simulation.
+	 * Records every button event for inputReplayer,
+	 * when a file is given with
+	 * -DsunsetSimulation.record=...
 	 */
-	public void startTheSimulation() {
+	protected void startRecording() {
+		String path = home.path("record");
+		if (path == null) {
+			return;
+		}
+		List<buttonLayout.entry> entries = layout.getEntries();
+		String[] ids = new String[entries.size()];
+		simulationButton[] buttons = new simulationButton[entries.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = entries.get(i).id;
+			buttons[i] = buttonsById.get(ids[i]);
+		}
 		try {
-			Runtime runTime = Runtime.getRuntime();
-			runTime.exec(simulationPath);
+			final inputRecorder recorder = new inputRecorder(new File(path), ids, buttons);
+			clicks.setRecorder(recorder);
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() { recorder.close(); }
+			}));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Lets local clients drive the buttons, when a
+	 * port is given with
+	 * -DsunsetSimulation.controlPort=...
+	 * Their commands go through the same click state
+	 * machine as touches, so the buttons and the
+	 * selected stage stay in step.
+	 */
+	protected void startControlServer() {
+		Integer port = home.port("controlPort");
+		if (port == null) {
+			return;
+		}
+		Set<String> stages = new HashSet<String>();
+		for (buttonLayout.entry entry : layout.getEntries()) {
+			if (entry.radio) {
+				stages.add(entry.id);
+			}
+		}
+		try {
+			control = new controlServer(port.intValue(), new HashSet<String>(buttonsById.keySet()), stages,
+					new controlDispatcher(buttonsById, clicks, controller, injector, new Runnable() {
+						@Override
+						public void run() { allKeysUp(); }
+					}));
+			control.start();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @param s  the station to launch the simulation for
+	 * @return the simulation's supervisor
+	 * Handles creation of the separate execution
+	 * environment for the closed-source simulation.
+	 * The supervisor relaunches it whenever it exits.
+	 * The executable can be swapped with
+	 * -DsunsetSimulation.simulationPath=...
+	 * Hosted stations' copies all have the same
+	 * window title, so each is bound to its window
+	 * by process.
+	 */
+	public static simulationSupervisor startTheSimulation(station s) {
+		simulationSupervisor supervisor = new simulationSupervisor(s.simulationPath, s.simulationName,
+				onWindows() ? windows : null, s.hosted,
+				"Sunset Simulation supervisor" + (s.hosted ? " " + s.number : ""));
+		supervisor.start();
+		return supervisor;
+	}
+
+	/**
+	 * @param hWnd  handle of a window
+	 * @return whether the window is any station's
+	 * overlay or simulation
+	 * Stations don't count each other's windows as
+	 * foreign, so their watchdogs never fight over
+	 * focus.
+	 */
+	private static boolean isStation(long hWnd) {
+		for (sunsetSimulation frame : allStations) {
+			if (hWnd == frame.supervisor.window() || hWnd == windows.find(frame.home.overlayName, true)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * @param button  the button to attach listeners
 	 * All of the buttons on the interface have a
@@ -288,154 +609,195 @@ public class sunsetSimulation extends JFrame {
 	 *   Mouse enters button while clicked
 	 */
 	protected void addClickListeners(simulationButton button) {
-		if(button.isMomentary) {
-			button.addMouseListener(new MouseAdapter() {
-				@Override
-				public void mousePressed(MouseEvent e1) { clickHandler(button, false); }
-				@Override
-				public void mouseReleased(MouseEvent e1) { clickHandler(button, true); }
-				@Override
-				public void mouseEntered(MouseEvent e1) {
-					if ((e1.getModifiersEx() & MouseEvent.BUTTON1_DOWN_MASK) != 0) {
-						clickHandler(button, false);
-					}
-				}
-				@Override
-				public void mouseExited(MouseEvent e1) {
-					if ((e1.getModifiersEx() & MouseEvent.BUTTON1_DOWN_MASK) != 0) {
-						clickHandler(button, true);
-					}
-				}
-			});
-		} else {
-			button.addMouseListener(new MouseAdapter() {
-				@Override
-				public void mousePressed(MouseEvent e1) { clickHandler(button, false); }
-				@Override
-				public void mouseReleased(MouseEvent e1) { clickHandler(button, true); }
-				@Override
-				public void mouseEntered(MouseEvent e1) {
-					if ((e1.getModifiersEx() & MouseEvent.BUTTON1_DOWN_MASK) != 0) {
-						clickHandler(button, false);
-					}
+		button.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e1) { touched(e1, button, clickStateMachine.PRESS); }
+			@Override
+			public void mouseReleased(MouseEvent e1) { touched(e1, button, clickStateMachine.RELEASE); }
+			@Override
+			public void mouseEntered(MouseEvent e1) {
+				if ((e1.getModifiersEx() & MouseEvent.BUTTON1_DOWN_MASK) != 0) {
+					touched(e1, button, clickStateMachine.ENTER);
 				}
-				@Override
-				public void mouseExited(MouseEvent e1) {
-					if ((e1.getModifiersEx() & MouseEvent.BUTTON1_DOWN_MASK) != 0) {
-						clickHandler(button, true);
-					}
+			}
+			@Override
+			public void mouseExited(MouseEvent e1) {
+				if ((e1.getModifiersEx() & MouseEvent.BUTTON1_DOWN_MASK) != 0) {
+					touched(e1, button, clickStateMachine.EXIT);
 				}
-			});
-		}
+			}
+		});
 	}
-	
+
 	/**
-	 * @param button    the button that was interacted with
-	 * @param released  whether this was the end of the interaction
-	 * Launch the application.
+	 * @param e       the mouse event that arrived
+	 * @param button  the button that was interacted with
+	 * @param kind    which of the four states this is
+	 * Hands the touch to the click state machine,
+	 * which coalesces drags before clickHandler.
+	 * OS_TO_LISTENER is timed from the OS's stamp on
+	 * the mouse message, as touches are, so it's only
+	 * recorded where pointerTouchSource is in place.
 	 */
-	protected void clickHandler(simulationButton button, boolean released) {
-		ifaceTimer.restart();
-		// Handle the button that was clicked before
-		if(clickedButton != null){
-			if(keyTimer.isRunning()) { keyTimer.stop(); }
-			liftKey(clickedButton.key);
-			clickedButton.setState(simulationButton.IDLE);
-			clickedButton = null;
-		}
-		// Handle the previously-selected radio button
-		if(activeButton != null) {
-			if(button.isMomentary && !released){
-				// Newly-clicked button is a different radio button
-				activeButton.setState(simulationButton.IDLE);
-			} else {
-				// Active radio button isn't clicked anymore
-				activeButton.setState(simulationButton.ACTIVE);
+	private void touched(MouseEvent e, simulationButton button, int kind) {
+		long now = System.nanoTime();
+		if (touches != null) {
+			long stamped = touches.mouseNanos(kind == clickStateMachine.PRESS ? touchSource.DOWN
+					: kind == clickStateMachine.RELEASE ? touchSource.UP : touchSource.MOVE);
+			if (stamped != 0) {
+				latency.record(latencyStats.OS_TO_LISTENER, button.key, now - stamped);
 			}
 		}
-		if(!released) {
-			button.setState(simulationButton.CLICKED);
-			clickedButton = button;
-			pressKey(button.key);
-			if(button.isMomentary){
-				activeButton = button;
-				keyTimer.restart();
-			}
+		clicks.offer(button, kind, now);
+	}
+
+	/**
+	 * Makes sure none of the keys that the
+	 * overlay ever presses are currently down,
+	 * from the simulation's point of view.
+	 * Only keys the overlay holds, or that the
+	 * OS reports as down, are released; when
+	 * nothing is down, nothing is sent. Hosted
+	 * stations don't ask the OS, whose key state
+	 * mixes every station's keys.
+	 */
+	protected void allKeysUp(){
+		releaseKeys(pressedKeys, keyState, injector);
+	}
+
+	/**
+	 * @param pressed   the keys one station holds
+	 * @param osState   the OS's key state, or null to go by pressed alone
+	 * @param injector  the station's injector
+	 * Releases whatever the station holds, or the OS
+	 * reports as down, in one batch.
+	 */
+	static void releaseKeys(pressedKeySet pressed, keyStateSource osState, inputInjector injector) {
+		int[] stuck = pressed.keysToRelease(osState);
+		if (stuck.length > 0) {
+			injector.releaseAll(stuck);
 		}
-		contentPane.repaint();
 	}
 
 	/**
-	 * @param key  the keyboard key to press
-	 * Creates a Robot that sends a simulated
-	 * key-down keyboard event to the application
-	 * that has OS-level focus. Also makes sure
-	 * that the application with focus is the
-	 * simulation.
+	 * @return the backend that delivers faked key events
+	 * Batches events through SendInput on Windows,
+	 * falling back to one Robot call per event.
 	 */
-	protected void pressKey(int key){
-		checkForeground();
-		Robot typer;
+	protected keyInjector createKeyInjector() {
 		try {
-			typer = new Robot();
-			typer.keyPress(key);
-		} catch (AWTException e2) {
-			e2.printStackTrace();
+			if (onWindows()) {
+				return new sendInputKeyInjector();
+			}
+		} catch (LinkageError e) {
+			// UnsatisfiedLinkError, or NoClassDefFoundError if an earlier attempt to bind user32 failed
+			e.printStackTrace();
+		}
+		try {
+			return new robotKeyInjector();
+		} catch (AWTException e) {
+			e.printStackTrace();
+			return new recordingKeyInjector();
 		}
 	}
-	
+
+	/**
+	 * @param keys  every key the overlay can press
+	 * @return the scheduler that times momentary keys
+	 * Pulse widths default to keyPulseNanos. They can
+	 * be tuned in microseconds with
+	 * -DsunsetSimulation.pulseMicros=..., and per key
+	 * with -DsunsetSimulation.pulseMicros.<key code>=...
+	 */
+	protected static keyPulseScheduler createPulseScheduler(int[] keys) {
+		Long defaultMicros = Long.getLong("sunsetSimulation.pulseMicros");
+		keyPulseScheduler pulses = new keyPulseScheduler(defaultMicros != null
+				? TimeUnit.MICROSECONDS.toNanos(defaultMicros.longValue()) : keyPulseNanos);
+		for (int key : keys) {
+			Long micros = Long.getLong("sunsetSimulation.pulseMicros." + key);
+			if (micros != null) {
+				pulses.setWidth(key, TimeUnit.MICROSECONDS.toNanos(micros.longValue()));
+			}
+		}
+		return pulses;
+	}
+
 	/**
-	 * @param key  the keyboard key to release
-	 * Creates a Robot that sends a simulated
-	 * key-up keyboard event to the application
-	 * that has OS-level focus. Also makes sure
-	 * that the application with focus is the
-	 * simulation.
+	 * @return the journal of button use, or null if
+	 * it can't be opened
+	 * Kept in interactionJournal.defaultDir(), or in
+	 * -DsunsetSimulation.journalDir=..., and turned
+	 * off with -DsunsetSimulation.journalDir=none
+	 * Hosted stations each keep their own, in the
+	 * directory with -<n> appended.
 	 */
-	protected void liftKey(int key){
-		checkForeground();
-		Robot typer;
+	protected interactionJournal openJournal() {
+		if ("none".equalsIgnoreCase(home.property("journalDir"))) {
+			return null;
+		}
+		String dir = home.path("journalDir");
+		if (dir == null) {
+			dir = interactionJournal.defaultDir().getPath() + (home.hosted ? "-" + home.number : "");
+		}
 		try {
-			typer = new Robot();
-			typer.keyRelease(key);
-		} catch (AWTException e2) {
-			e2.printStackTrace();
+			final interactionJournal opened = new interactionJournal(new File(dir), journalBytes);
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() { opened.close(); }
+			}));
+			return opened;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
 		}
 	}
 
 	/**
-	 * Makes sure none of the keys that the
-	 * overlay ever presses are currently down,
-	 * from the simulation's point of view.
+	 * @return the checks that tell whether the
+	 * simulation is still responding
+	 * On Windows, whether it is hung and whether it
+	 * answers a message. Wherever a patch of the
+	 * screen is given with
+	 * -DsunsetSimulation.frameProbe=x,y,width,height,
+	 * also whether that patch is still changing.
 	 */
-	protected void allKeysUp(){
-		for (int key : pressableKeys) {
-			liftKey(key);
+	protected List<healthProbe> createHealthProbes() {
+		List<healthProbe> probes = new ArrayList<healthProbe>();
+		if (onWindows()) {
+			probes.add(new user32HungProbe());
+			probes.add(new user32PingProbe());
+		}
+		frameChecksumProbe frame = frameChecksumProbe.parse(
+				home.property("frameProbe"), frameStaleNanos);
+		if (frame != null) {
+			probes.add(frame);
 		}
+		return probes;
 	}
 
 	/**
-	 * @param path         path to the asset
-	 * @param description  text-based representation
-	 * @return the asset requested, in ImageIcon format
+	 * @return whether the overlay is running on
+	 * Microsoft Windows, where user32 is available
+	 */
+	protected static boolean onWindows() {
+		return System.getProperty("os.name").startsWith("Windows");
+	}
+
+	/**
+	 * @param path  path to the asset
+	 * @return the asset's sprite index in the atlas
 	 * Function for collecting needed assets.
 	 */
-	protected ImageIcon createImageIcon(String path, String description) {
-		java.net.URL imgURL = getClass().getResource(path);
-		if (imgURL != null) {
-			return new ImageIcon(imgURL, description);
-		} else {
-			System.err.println("Couldn't find file: " + path);
-			return null;
-		}
+	protected int sprite(String path) {
+		return Arrays.asList(assetPaths).indexOf(path);
 	}
 
 	/**
-	 * Makes sure the simulation is the
-	 * OS-level application with focus.
+	 * Makes sure this station's simulation is
+	 * the OS-level application with focus.
 	 */
 	protected void checkForeground() {
-		setForegroundWindowByName(simulationName, true);
+		supervisor.bringToFront();
 	}
 
 	/**
@@ -443,16 +805,111 @@ public class sunsetSimulation extends JFrame {
 	 * @version 1.0
 	 * Provides OS-level access to application/window
 	 * names, and to set the application that has focus.
+	 * Bound with JNA direct mapping, so each call is a
+	 * plain native method call rather than a trip
+	 * through a reflective proxy.
 	 */
-	public interface User32 extends StdCallLibrary {
-		User32 INSTANCE = (User32) Native.loadLibrary("user32", User32.class);
-		interface WNDENUMPROC extends StdCallCallback {
+	public static final class User32 implements StdCallLibrary {
+		static {
+			Native.register(User32.class, NativeLibrary.getInstance("user32",
+					Collections.singletonMap(Library.OPTION_CALLING_CONVENTION,
+							Integer.valueOf(StdCallLibrary.STDCALL_CONVENTION))));
+		}
+		private User32() {}
+		public interface WNDENUMPROC extends StdCallCallback {
 			boolean callback(Pointer hWnd, Pointer arg);
 		}
-		boolean EnumWindows(WNDENUMPROC lpEnumFunc, Pointer arg);
-		int GetWindowTextA(Pointer hWnd, byte[] lpString, int nMaxCount);
-		int SetForegroundWindow(Pointer hWnd);
-		Pointer GetForegroundWindow();
+		public static native boolean EnumWindows(WNDENUMPROC lpEnumFunc, Pointer arg);
+		public static native int GetWindowTextW(Pointer hWnd, Pointer lpString, int nMaxCount);
+		public static native int SetForegroundWindow(Pointer hWnd);
+		public static native Pointer GetForegroundWindow();
+		public static native boolean IsWindow(Pointer hWnd);
+		public static native int GetWindowThreadProcessId(Pointer hWnd, Pointer lpdwProcessId);
+		public interface WINEVENTPROC extends StdCallCallback {
+			void callback(Pointer hWinEventHook, int event, Pointer hWnd, int idObject,
+					int idChild, int dwEventThread, int dwmsEventTime);
+		}
+		public static native Pointer SetWinEventHook(int eventMin, int eventMax, Pointer hmodWinEventProc,
+				WINEVENTPROC pfnWinEventProc, int idProcess, int idThread, int dwFlags);
+		public static native boolean UnhookWinEvent(Pointer hWinEventHook);
+		public static native int GetMessageW(Pointer lpMsg, Pointer hWnd, int wMsgFilterMin, int wMsgFilterMax);
+		public static native int SendInput(int nInputs, Pointer pInputs, int cbSize);
+		public static native int MapVirtualKeyW(int uCode, int uMapType);
+		public static native short GetAsyncKeyState(int vKey);
+		public static native boolean IsHungAppWindow(Pointer hWnd);
+		public static native Pointer SendMessageTimeoutW(Pointer hWnd, int Msg, Pointer wParam, Pointer lParam,
+				int fuFlags, int uTimeout, Pointer lpdwResult);
+		public interface WNDPROC extends StdCallCallback {
+			Pointer callback(Pointer hWnd, int uMsg, Pointer wParam, Pointer lParam);
+		}
+		public static native Pointer CallWindowProcW(Pointer lpPrevWndFunc, Pointer hWnd, int uMsg,
+				Pointer wParam, Pointer lParam);
+		public static native int GetMessageTime();
+		public static native boolean GetPointerInfo(int pointerId, Pointer pointerInfo);
+		public static class MOUSEINPUT extends Structure {
+			public int dx;
+			public int dy;
+			public int mouseData;
+			public int dwFlags;
+			public int time;
+			public Pointer dwExtraInfo;
+			@Override
+			protected List<String> getFieldOrder() {
+				return Arrays.asList("dx", "dy", "mouseData", "dwFlags", "time", "dwExtraInfo");
+			}
+		}
+		public static class KEYBDINPUT extends Structure {
+			public short wVk;
+			public short wScan;
+			public int dwFlags;
+			public int time;
+			public Pointer dwExtraInfo;
+			@Override
+			protected List<String> getFieldOrder() {
+				return Arrays.asList("wVk", "wScan", "dwFlags", "time", "dwExtraInfo");
+			}
+		}
+		public static class INPUT_UNION extends Union {
+			public MOUSEINPUT mi;
+			public KEYBDINPUT ki;
+		}
+		public static class INPUT extends Structure {
+			public int type;
+			public INPUT_UNION input;
+			@Override
+			protected List<String> getFieldOrder() {
+				return Arrays.asList("type", "input");
+			}
+		}
+	}
+
+	/**
+	 * The kernel32 functions the overlay uses, bound
+	 * the same way as User32.
+	 */
+	public static final class Kernel32 implements StdCallLibrary {
+		static {
+			Native.register(Kernel32.class, NativeLibrary.getInstance("kernel32",
+					Collections.singletonMap(Library.OPTION_CALLING_CONVENTION,
+							Integer.valueOf(StdCallLibrary.STDCALL_CONVENTION))));
+		}
+		private Kernel32() {}
+		public static native int GetTickCount();
+	}
+
+	/**
+	 * The winmm functions the overlay uses, bound
+	 * the same way as User32.
+	 */
+	public static final class Winmm implements StdCallLibrary {
+		static {
+			Native.register(Winmm.class, NativeLibrary.getInstance("winmm",
+					Collections.singletonMap(Library.OPTION_CALLING_CONVENTION,
+							Integer.valueOf(StdCallLibrary.STDCALL_CONVENTION))));
+		}
+		private Winmm() {}
+		public static native int timeBeginPeriod(int uPeriod);
+		public static native int timeEndPeriod(int uPeriod);
 	}
 
 	/**
@@ -461,28 +918,29 @@ public class sunsetSimulation extends JFrame {
 	 * @return match result
 	 */
 	public static boolean setForegroundWindowByName(final String windowName, final boolean starting) {
-		final User32 user32 = User32.INSTANCE;
-		return user32.EnumWindows(new User32.WNDENUMPROC() {
+		return windows.bringToFront(windowName, starting);
+	}
+
+	/**
+	 * @param restore  un-minimizes the overlay
+	 * @param focus    brings the overlay to the foreground
+	 * @param raised   run once the overlay is up, even if either failed
+	 * Restores, then focuses, the overlay in a single
+	 * EDT task, so nothing queued on the EDT can
+	 * minimize it again in between.
+	 */
+	static void raiseOverlay(final Runnable restore, final Runnable focus, final Runnable raised) {
+		EventQueue.invokeLater(new Runnable() {
 			@Override
-			public boolean callback(Pointer hWnd, Pointer arg) {
-				byte[] windowText = new byte[512];
-				user32.GetWindowTextA(hWnd, windowText, 512);
-				String wText = Native.toString(windowText);
-				//System.out.println(wText);
-				if (starting) {
-					if (wText.startsWith(windowName)) {
-						user32.SetForegroundWindow(hWnd);
-						return false;
-					}
-				} else {
-					if (wText.contains(windowName)) {
-						user32.SetForegroundWindow(hWnd);
-						return false;
-					}
+			public void run() {
+				try {
+					restore.run();
+					focus.run();
+				} finally {
+					raised.run();
 				}
-				return true;
 			}
-		}, null);
+		});
 	}
 
 }
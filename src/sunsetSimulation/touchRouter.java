@@ -0,0 +1,133 @@
+/**
+ * touchRouter.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.awt.EventQueue;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * touchRouter turns raw touch contacts into the
+ * same presses, releases, drag-ins and drag-outs
+ * the buttons' mouse listeners produce, by hit
+ * testing each contact against the buttons' screen
+ * bounds itself, and feeds them to the overlay's
+ * clickStateMachine. A finger that slides off one
+ * button and onto another behaves exactly as a
+ * held mouse button would.
+ * 
+ * Contacts may arrive on any thread; routing
+ * happens on the EDT.
+ */
+public class touchRouter implements touchSource.listener {
+
+	private final List<simulationButton> buttons;
+	private final clickStateMachine clicks;
+	private final latencyStats latency;
+	private simulationButton under;
+	private boolean inContact;
+
+	/**
+	 * @param buttons  the buttons to hit test against
+	 * @param clicks   where the resulting events go
+	 * @param latency  where the contact-to-EDT delay is recorded
+	 */
+	public touchRouter(List<simulationButton> buttons, clickStateMachine clicks, latencyStats latency) {
+		this.buttons = buttons;
+		this.clicks = clicks;
+		this.latency = latency;
+	}
+
+	@Override
+	public void contact(final int kind, final int x, final int y, final long nanos) {
+		if (EventQueue.isDispatchThread()) {
+			route(kind, x, y, nanos);
+			return;
+		}
+		EventQueue.invokeLater(new Runnable() {
+			@Override
+			public void run() { route(kind, x, y, nanos); }
+		});
+	}
+
+	/**
+	 * @param kind   DOWN, MOVE or UP
+	 * @param x      screen x
+	 * @param y      screen y
+	 * @param nanos  when the OS stamped the contact
+	 * OS_TO_LISTENER runs from the OS's timestamp to
+	 * here, as it does on the mouse path, to the
+	 * resolution of the OS tick (see pointerTouchSource).
+	 */
+	private void route(int kind, int x, int y, long nanos) {
+		long now = System.nanoTime();
+		simulationButton hit = hitTest(x, y);
+		if (hit != null) {
+			latency.record(latencyStats.OS_TO_LISTENER, hit.key, now - nanos);
+		}
+		if (kind == touchSource.DOWN) {
+			inContact = true;
+			under = hit;
+			if (hit != null) {
+				clicks.offer(hit, clickStateMachine.PRESS, now);
+			}
+		} else if (kind == touchSource.UP) {
+			if (inContact && under != null) {
+				clicks.offer(under, clickStateMachine.RELEASE, now);
+			}
+			inContact = false;
+			under = null;
+		} else if (inContact && hit != under) {
+			if (under != null) {
+				clicks.offer(under, clickStateMachine.EXIT, now);
+			}
+			if (hit != null) {
+				clicks.offer(hit, clickStateMachine.ENTER, now);
+			}
+			under = hit;
+		}
+	}
+
+	/**
+	 * @param x  screen x
+	 * @param y  screen y
+	 * @return the button under the point, or null
+	 */
+	private simulationButton hitTest(int x, int y) {
+		for (simulationButton button : buttons) {
+			Rectangle bounds = screenBounds(button);
+			if (bounds != null && bounds.contains(x, y)) {
+				return button;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param button  a button
+	 * @return where the button is on screen, or null
+	 * if it isn't showing
+	 */
+	Rectangle screenBounds(simulationButton button) {
+		if (!button.isShowing()) {
+			return null;
+		}
+		Point origin = button.getLocationOnScreen();
+		return new Rectangle(origin.x, origin.y, button.getWidth(), button.getHeight());
+	}
+
+}
@@ -0,0 +1,58 @@
+/**
+ * touchSource.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * touchSource delivers raw touch contacts to the
+ * overlay, ahead of (and instead of) the mouse
+ * events Windows would otherwise synthesize from
+ * them. Only the primary contact is reported, the
+ * same single finger that mouse promotion follows.
+ * 
+ * The Windows implementation is pointerTouchSource;
+ * scriptedTouchSource plays back contacts it is
+ * handed, for driving the overlay off Windows.
+ */
+public interface touchSource {
+
+	public final static int DOWN = 0;
+	public final static int MOVE = 1;
+	public final static int UP = 2;
+
+	/**
+	 * Notified of each contact change, on whatever
+	 * thread the source delivers on.
+	 */
+	interface listener {
+		/**
+		 * @param kind   DOWN, MOVE or UP
+		 * @param x      screen x, in the same units as
+		 *               Component.getLocationOnScreen()
+		 * @param y      screen y, likewise
+		 * @param nanos  when the OS stamped the contact, as
+		 *               System.nanoTime()
+		 */
+		void contact(int kind, int x, int y, long nanos);
+	}
+
+	/**
+	 * @param l  listener to notify from now on
+	 * @return whether the source is delivering, false
+	 * if the platform can't provide raw touches
+	 */
+	boolean start(listener l);
+
+}
@@ -0,0 +1,67 @@
+/**
+ * user32ForegroundEventSource.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * user32ForegroundEventSource registers an
+ * out-of-context SetWinEventHook for
+ * EVENT_SYSTEM_FOREGROUND. Windows delivers those
+ * events through the message queue of the thread
+ * that registered the hook, so the hook lives on
+ * its own daemon thread running a message loop.
+ */
+public class user32ForegroundEventSource implements foregroundEventSource {
+
+	private static final int EVENT_SYSTEM_FOREGROUND = 0x0003;
+	private static final int WINEVENT_OUTOFCONTEXT = 0x0000;
+
+	// Held for the life of the hook, so the callback is never collected.
+	private sunsetSimulation.User32.WINEVENTPROC callback;
+
+	@Override
+	public void start(final listener l) {
+		callback = new sunsetSimulation.User32.WINEVENTPROC() {
+			@Override
+			public void callback(Pointer hWinEventHook, int event, Pointer hWnd, int idObject,
+					int idChild, int dwEventThread, int dwmsEventTime) {
+				l.foregroundChanged(Pointer.nativeValue(hWnd));
+			}
+		};
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Pointer hook = sunsetSimulation.User32.SetWinEventHook(EVENT_SYSTEM_FOREGROUND, EVENT_SYSTEM_FOREGROUND,
+						null, callback, 0, 0, WINEVENT_OUTOFCONTEXT);
+				if (hook == null) {
+					System.err.println("Couldn't hook foreground changes, polling only");
+					return;
+				}
+				// Large enough for a MSG on 32 and 64 bit
+				Memory msg = new Memory(64);
+				while (sunsetSimulation.User32.GetMessageW(msg, null, 0, 0) > 0) {
+					// Hook callbacks are dispatched inside GetMessage
+				}
+				sunsetSimulation.User32.UnhookWinEvent(hook);
+			}
+		}, "Sunset Simulation foreground hook");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+}
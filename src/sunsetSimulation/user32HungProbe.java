@@ -0,0 +1,52 @@
+/**
+ * user32HungProbe.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import com.sun.jna.Pointer;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * user32HungProbe asks Windows whether it already
+ * considers the simulation hung, which it does
+ * once a window stops pumping messages for a few
+ * seconds. It never waits on the simulation, so
+ * it is the cheapest probe there is.
+ */
+public class user32HungProbe implements healthProbe {
+
+	private Pointer window;
+
+	@Override
+	public String name() {
+		return "hung";
+	}
+
+	@Override
+	public void reset() {
+		window = null;
+	}
+
+	@Override
+	public int check(long hWnd, long budgetNanos) {
+		if (hWnd == 0) {
+			return UNKNOWN;
+		}
+		if (window == null || Pointer.nativeValue(window) != hWnd) {
+			window = new Pointer(hWnd);
+		}
+		return sunsetSimulation.User32.IsHungAppWindow(window) ? UNRESPONSIVE : HEALTHY;
+	}
+
+}
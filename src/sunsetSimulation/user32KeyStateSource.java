@@ -0,0 +1,31 @@
+/**
+ * user32KeyStateSource.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * user32KeyStateSource reads the real key state
+ * with GetAsyncKeyState. KeyEvent key codes are
+ * used as Windows virtual key codes, as in
+ * sendInputKeyInjector.
+ */
+public class user32KeyStateSource implements keyStateSource {
+
+	@Override
+	public boolean isDown(int key) {
+		return (sunsetSimulation.User32.GetAsyncKeyState(key & 0xFF) & 0x8000) != 0;
+	}
+
+}
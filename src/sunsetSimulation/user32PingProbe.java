@@ -0,0 +1,130 @@
+/**
+ * user32PingProbe.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.jna.Pointer;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * user32PingProbe sends the simulation's window a
+ * WM_NULL and waits up to pingTimeoutMillis for it
+ * to be handled. It catches a window that has
+ * stopped pumping messages before Windows gets
+ * around to calling it hung.
+ * 
+ * A busy but healthy simulation can take well over
+ * the probe budget to get to a message, so the ping
+ * runs on a thread of its own rather than within
+ * the budget: each check reports how the previous
+ * ping went and sends the next one. The verdict is
+ * a period late, which the monitor's run of
+ * failures before a restart easily absorbs.
+ */
+public class user32PingProbe implements healthProbe {
+
+	private static final int WM_NULL = 0x0000;
+	private static final int SMTO_BLOCK = 0x0001;
+	private static final int SMTO_ABORTIFHUNG = 0x0002;
+	private static final int pingTimeoutMillis = 400;
+
+	/**
+	 * Sends the ping and waits for the answer.
+	 */
+	interface sender {
+		/**
+		 * @param hWnd           the window to ping
+		 * @param timeoutMillis  how long to wait for it
+		 * @return whether the window handled the ping in time
+		 */
+		boolean ping(long hWnd, int timeoutMillis);
+	}
+
+	private final sender sender;
+	private final ExecutorService pinger = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "Sunset Simulation ping");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	// Guarded by this
+	private boolean pinging;
+	private int verdict = UNKNOWN;
+	private int generation;
+
+	public user32PingProbe() {
+		this(new sender() {
+			@Override
+			public boolean ping(long hWnd, int timeoutMillis) {
+				return sunsetSimulation.User32.SendMessageTimeoutW(new Pointer(hWnd), WM_NULL, null, null,
+						SMTO_BLOCK | SMTO_ABORTIFHUNG, timeoutMillis, null) != null;
+			}
+		});
+	}
+
+	/**
+	 * @param sender  what sends the ping
+	 */
+	user32PingProbe(sender sender) {
+		this.sender = sender;
+	}
+
+	@Override
+	public String name() {
+		return "ping";
+	}
+
+	@Override
+	public synchronized void reset() {
+		verdict = UNKNOWN;
+		generation++;
+	}
+
+	@Override
+	public synchronized int check(long hWnd, long budgetNanos) {
+		if (hWnd == 0 || pinging) {
+			return UNKNOWN;
+		}
+		int result = verdict;
+		verdict = UNKNOWN;
+		pinging = true;
+		final long window = hWnd;
+		final int sent = generation;
+		pinger.execute(new Runnable() {
+			@Override
+			public void run() {
+				answered(sent, sender.ping(window, pingTimeoutMillis) ? HEALTHY : UNRESPONSIVE);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * @param sent    the generation the ping was sent in
+	 * @param result  how it went
+	 */
+	private synchronized void answered(int sent, int result) {
+		pinging = false;
+		if (sent == generation) {
+			verdict = result;
+		}
+	}
+
+}
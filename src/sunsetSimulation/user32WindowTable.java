@@ -0,0 +1,150 @@
+/**
+ * user32WindowTable.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * user32WindowTable is the windowTable backed
+ * by the real Windows window list, via the JNA
+ * User32 binding in sunsetSimulation.
+ * 
+ * Lookups are meant to produce no garbage: one
+ * enumeration callback lives as long as the table,
+ * titles are read with GetWindowTextW into one
+ * reusable native buffer and compared in place,
+ * and the Pointers for recently used handles are
+ * kept, so checking a cached handle allocates
+ * nothing. The one remaining allocation is the
+ * Pointer JNA hands the callback for each window
+ * visited by a full scan, which is then reused
+ * for reading that window's title.
+ * 
+ * Calls are serialized, since they share the
+ * native buffer.
+ */
+public class user32WindowTable implements windowTable {
+
+	private static final int titleChars = 512;
+	private static final int recentHandles = 4;
+
+	private final Memory title = new Memory(titleChars * 2);
+	private final Memory processId = new Memory(4);
+	private final Pointer[] recent = new Pointer[recentHandles];
+	private int nextRecent;
+	private visitor current;
+	// The Pointer JNA made for the window being visited
+	private Pointer visiting;
+
+	private final sunsetSimulation.User32.WNDENUMPROC callback = new sunsetSimulation.User32.WNDENUMPROC() {
+		@Override
+		public boolean callback(Pointer hWnd, Pointer arg) {
+			visiting = hWnd;
+			try {
+				return current.visit(Pointer.nativeValue(hWnd));
+			} finally {
+				visiting = null;
+			}
+		}
+	};
+
+	@Override
+	public synchronized void enumerate(visitor v) {
+		current = v;
+		try {
+			sunsetSimulation.User32.EnumWindows(callback, null);
+		} finally {
+			current = null;
+		}
+	}
+
+	@Override
+	public synchronized boolean isWindow(long hWnd) {
+		return hWnd != 0 && sunsetSimulation.User32.IsWindow(pointer(hWnd));
+	}
+
+	@Override
+	public synchronized boolean titleMatches(long hWnd, String windowName, boolean starting) {
+		int length = sunsetSimulation.User32.GetWindowTextW(pointer(hWnd), title, titleChars);
+		int nameLength = windowName.length();
+		if (starting) {
+			return length >= nameLength && matchesAt(0, windowName);
+		}
+		for (int offset = 0; offset + nameLength <= length; offset++) {
+			if (matchesAt(offset, windowName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized long processId(long hWnd) {
+		processId.setInt(0, 0);
+		sunsetSimulation.User32.GetWindowThreadProcessId(pointer(hWnd), processId);
+		return processId.getInt(0) & 0xFFFFFFFFL;
+	}
+
+	@Override
+	public long getForeground() {
+		return Pointer.nativeValue(sunsetSimulation.User32.GetForegroundWindow());
+	}
+
+	@Override
+	public synchronized boolean setForeground(long hWnd) {
+		return sunsetSimulation.User32.SetForegroundWindow(pointer(hWnd)) != 0;
+	}
+
+	/**
+	 * @param offset      character offset into the title buffer
+	 * @param windowName  text to compare against
+	 * @return whether the title holds windowName at offset
+	 */
+	private boolean matchesAt(int offset, String windowName) {
+		for (int i = 0; i < windowName.length(); i++) {
+			if (title.getChar((offset + i) * 2L) != windowName.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param hWnd  native handle value
+	 * @return a Pointer for the handle, reused if it
+	 * was one of the last few handles asked for, or
+	 * is the window being visited by an enumeration.
+	 * Windows visited by a scan don't enter the
+	 * recent handles, so they can't push out the
+	 * handles that are looked up all the time.
+	 */
+	private Pointer pointer(long hWnd) {
+		if (visiting != null && Pointer.nativeValue(visiting) == hWnd) {
+			return visiting;
+		}
+		for (Pointer p : recent) {
+			if (p != null && Pointer.nativeValue(p) == hWnd) {
+				return p;
+			}
+		}
+		Pointer p = new Pointer(hWnd);
+		recent[nextRecent] = p;
+		nextRecent = (nextRecent + 1) % recentHandles;
+		return p;
+	}
+
+}
@@ -0,0 +1,241 @@
+/**
+ * windowResolver.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * windowResolver finds top-level windows by
+ * title and brings them to the foreground.
+ * 
+ * Handles are cached per title, so the common
+ * case (the simulation and the overlay haven't
+ * gone anywhere) costs a handle check and a
+ * title read instead of a walk over every window
+ * on the machine. A full scan only happens when
+ * the cached handle has gone stale. Focus is
+ * only requested when the target isn't already
+ * the foreground window.
+ * 
+ * Where several copies of the simulation run at
+ * once, all with the same title, each one is
+ * told apart by the process that owns its window;
+ * those handles are cached per process instead.
+ * 
+ * Lookups allocate nothing once a title has been
+ * seen: the cache is a short array searched in
+ * place, holding plain long handles, and scans
+ * reuse one visitor.
+ */
+public class windowResolver {
+
+	/**
+	 * The cached handle for one title, or for one
+	 * title and owning process.
+	 */
+	private static final class cachedWindow {
+		final String windowName;
+		final long processId;
+		volatile long hWnd;
+
+		cachedWindow(String windowName, long processId) {
+			this.windowName = windowName;
+			this.processId = processId;
+		}
+	}
+
+	private final windowTable table;
+	private volatile cachedWindow[] cache = new cachedWindow[0];
+	// What scan() is looking for; only touched under the resolver's lock
+	private String scanName;
+	private boolean scanStarting;
+	private long scanProcessId;
+	private long scanFound;
+
+	private final windowTable.visitor scanner = new windowTable.visitor() {
+		@Override
+		public boolean visit(long hWnd) {
+			if (table.titleMatches(hWnd, scanName, scanStarting)
+					&& (scanProcessId == 0 || table.processId(hWnd) == scanProcessId)) {
+				scanFound = hWnd;
+				return false;
+			}
+			return true;
+		}
+	};
+
+	/**
+	 * @param table  the window list to resolve against
+	 */
+	public windowResolver(windowTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * @param windowName  the OS-level window name
+	 * @param starting    actual name must match windowName from start
+	 * @return handle of the matching window, or 0 if there is none
+	 */
+	public long find(String windowName, boolean starting) {
+		return find(windowName, starting, 0);
+	}
+
+	/**
+	 * @param windowName  the OS-level window name
+	 * @param starting    actual name must match windowName from start
+	 * @param processId   id of the process that must own the
+	 *                    window, or 0 for any process
+	 * @return handle of the matching window, or 0 if there is none
+	 */
+	public long find(String windowName, boolean starting, long processId) {
+		cachedWindow entry = entry(windowName, processId);
+		long hWnd = entry.hWnd;
+		if (hWnd != 0 && matches(hWnd, windowName, starting, processId)) {
+			return hWnd;
+		}
+		hWnd = scan(windowName, starting, processId);
+		entry.hWnd = hWnd;
+		return hWnd;
+	}
+
+	/**
+	 * @param windowName  the OS-level window name
+	 * @param starting    actual name must match windowName from start
+	 * @return whether a matching window was found
+	 * Makes the matching window the foreground
+	 * window, unless it already is.
+	 */
+	public boolean bringToFront(String windowName, boolean starting) {
+		return bringToFront(windowName, starting, 0);
+	}
+
+	/**
+	 * @param windowName  the OS-level window name
+	 * @param starting    actual name must match windowName from start
+	 * @param processId   id of the process that must own the
+	 *                    window, or 0 for any process
+	 * @return whether a matching window was found
+	 * Makes the matching window the foreground
+	 * window, unless it already is.
+	 */
+	public boolean bringToFront(String windowName, boolean starting, long processId) {
+		long hWnd = find(windowName, starting, processId);
+		if (hWnd == 0) {
+			return false;
+		}
+		if (table.getForeground() != hWnd) {
+			table.setForeground(hWnd);
+		}
+		return true;
+	}
+
+	/**
+	 * @param windowName  the OS-level window name
+	 * Forgets the cached handle for a window, EG
+	 * after its process was restarted.
+	 */
+	public void invalidate(String windowName) {
+		for (cachedWindow entry : cache) {
+			if (entry.processId == 0 && entry.windowName.equals(windowName)) {
+				entry.hWnd = 0;
+			}
+		}
+	}
+
+	/**
+	 * @param processId  id of a process that has exited
+	 * Forgets the cached handle for its window.
+	 */
+	public synchronized void invalidate(long processId) {
+		cachedWindow[] kept = new cachedWindow[cache.length];
+		int count = 0;
+		for (cachedWindow entry : cache) {
+			if (entry.processId != processId) {
+				kept[count++] = entry;
+			}
+		}
+		if (count < kept.length) {
+			cachedWindow[] shrunk = new cachedWindow[count];
+			System.arraycopy(kept, 0, shrunk, 0, count);
+			cache = shrunk;
+		}
+	}
+
+	/**
+	 * @param windowName  the OS-level window name
+	 * @param processId   id of the owning process, or 0 for any
+	 * @return the cache entry for the window, added
+	 * the first time it is asked for
+	 */
+	private cachedWindow entry(String windowName, long processId) {
+		cachedWindow entry = lookup(cache, windowName, processId);
+		if (entry != null) {
+			return entry;
+		}
+		synchronized (this) {
+			cachedWindow[] current = cache;
+			entry = lookup(current, windowName, processId);
+			if (entry == null) {
+				entry = new cachedWindow(windowName, processId);
+				cachedWindow[] grown = new cachedWindow[current.length + 1];
+				System.arraycopy(current, 0, grown, 0, current.length);
+				grown[current.length] = entry;
+				cache = grown;
+			}
+			return entry;
+		}
+	}
+
+	private static cachedWindow lookup(cachedWindow[] entries, String windowName, long processId) {
+		for (cachedWindow entry : entries) {
+			if (entry.processId == processId && entry.windowName.equals(windowName)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param hWnd        handle to check
+	 * @param windowName  the OS-level window name
+	 * @param starting    actual name must match windowName from start
+	 * @param processId   id of the owning process, or 0 for any
+	 * @return whether hWnd is still the matching window
+	 */
+	private boolean matches(long hWnd, String windowName, boolean starting, long processId) {
+		return table.isWindow(hWnd) && table.titleMatches(hWnd, windowName, starting)
+				&& (processId == 0 || table.processId(hWnd) == processId);
+	}
+
+	/**
+	 * @param windowName  the OS-level window name
+	 * @param starting    actual name must match windowName from start
+	 * @param processId   id of the owning process, or 0 for any
+	 * @return handle of the first matching window, or 0
+	 * Walks the whole window list.
+	 */
+	private synchronized long scan(String windowName, boolean starting, long processId) {
+		scanName = windowName;
+		scanStarting = starting;
+		scanProcessId = processId;
+		scanFound = 0;
+		try {
+			table.enumerate(scanner);
+			return scanFound;
+		} finally {
+			scanName = null;
+		}
+	}
+
+}
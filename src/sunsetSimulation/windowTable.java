@@ -0,0 +1,84 @@
+/**
+ * windowTable.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * windowTable is the view of the OS-level
+ * top-level window list that windowResolver
+ * works against. The Windows implementation is
+ * user32WindowTable; anything else (EG a fixed
+ * table of fake windows) can stand in for it
+ * on machines without user32.
+ * 
+ * Window handles are passed around as plain
+ * native values, where 0 means "no window".
+ */
+public interface windowTable {
+
+	/**
+	 * Called once per top-level window during
+	 * an enumeration.
+	 */
+	interface visitor {
+		/**
+		 * @param hWnd  handle of the window being visited
+		 * @return true to keep enumerating, false to stop
+		 */
+		boolean visit(long hWnd);
+	}
+
+	/**
+	 * @param v  visitor to call for each top-level window
+	 * Walks every top-level window, in z-order,
+	 * until the visitor asks to stop.
+	 */
+	void enumerate(visitor v);
+
+	/**
+	 * @param hWnd  handle to check
+	 * @return whether the handle still refers to a window
+	 */
+	boolean isWindow(long hWnd);
+
+	/**
+	 * @param hWnd        handle of the window
+	 * @param windowName  the OS-level window name
+	 * @param starting    actual name must match windowName from start
+	 * @return whether the window's title matches
+	 * Called for every window during a scan, so
+	 * implementations should avoid allocating.
+	 */
+	boolean titleMatches(long hWnd, String windowName, boolean starting);
+
+	/**
+	 * @param hWnd  handle of the window
+	 * @return id of the process that owns the window,
+	 * or 0 if it can't be told
+	 */
+	long processId(long hWnd);
+
+	/**
+	 * @return handle of the window that has focus, or 0
+	 */
+	long getForeground();
+
+	/**
+	 * @param hWnd  handle of the window to focus
+	 * @return whether the OS accepted the request
+	 */
+	boolean setForeground(long hWnd);
+
+}
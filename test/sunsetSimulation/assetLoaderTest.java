@@ -0,0 +1,106 @@
+/**
+ * assetLoaderTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks that assetLoader's disk cache gives back
+ * exactly what decoding gives, and that an entry
+ * whose header doesn't fit its source or its
+ * length is decoded again rather than trusted.
+ */
+public class assetLoaderTest {
+
+	private static final String asset = "assets/left_icon_idle.png";
+	private static final double scale = 1.5;
+	// Offsets of the scaled width and height in a cache entry
+	private static final int widthOffset = 4 + 8 + 4 + 4;
+	private static final int heightOffset = widthOffset + 4;
+
+	@TempDir
+	File cacheDir;
+
+	@Test
+	public void cachedImageMatchesDecoded() {
+		BufferedImage decoded = load();
+		assertEquals(1, entries().length);
+		assertSame(decoded, load());
+	}
+
+	@Test
+	public void decodesAgainWhenSizeIsWrong() throws IOException {
+		BufferedImage decoded = load();
+		try (RandomAccessFile entry = new RandomAccessFile(entries()[0], "rw")) {
+			entry.seek(widthOffset);
+			entry.writeInt(decoded.getWidth() / 2);
+			entry.seek(heightOffset);
+			entry.writeInt(decoded.getHeight() * 2);
+		}
+		assertSame(decoded, load());
+	}
+
+	@Test
+	public void decodesAgainWhenSizeIsHuge() throws IOException {
+		BufferedImage decoded = load();
+		try (RandomAccessFile entry = new RandomAccessFile(entries()[0], "rw")) {
+			entry.seek(widthOffset);
+			entry.writeInt(0x10000);
+			entry.seek(heightOffset);
+			entry.writeInt(0x10000);
+		}
+		assertSame(decoded, load());
+	}
+
+	@Test
+	public void decodesAgainWhenTruncated() throws IOException {
+		BufferedImage decoded = load();
+		try (RandomAccessFile entry = new RandomAccessFile(entries()[0], "rw")) {
+			entry.setLength(entry.length() - 4);
+		}
+		assertSame(decoded, load());
+	}
+
+	private BufferedImage load() {
+		assetLoader assets = new assetLoader(sunsetSimulation.class, null, cacheDir, scale);
+		BufferedImage image = assets.image(asset);
+		assets.finish();
+		assertEquals(0, assets.getMissing().size());
+		return image;
+	}
+
+	private File[] entries() {
+		return cacheDir.listFiles();
+	}
+
+	private static void assertSame(BufferedImage expected, BufferedImage actual) {
+		int w = expected.getWidth();
+		int h = expected.getHeight();
+		assertEquals(w, actual.getWidth());
+		assertEquals(h, actual.getHeight());
+		assertArrayEquals(expected.getRGB(0, 0, w, h, null, 0, w), actual.getRGB(0, 0, w, h, null, 0, w));
+	}
+
+}
@@ -0,0 +1,125 @@
+/**
+ * bootSequenceTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Guards boot time. Starts the overlay's own boot
+ * stages that don't need a screen, native warm-up
+ * and a cold asset load, as main() does, and fails
+ * if they take longer than
+ * -DsunsetSimulation.testBootBudgetMillis=...
+ * (default bootBudgetMillis below). Also checks
+ * that stages really run side by side, and that
+ * the boot report and budget work.
+ */
+public class bootSequenceTest {
+
+	// Several times what a cold headless boot takes on a build machine
+	private static final long bootBudgetMillis = 5000;
+	private static final long timeoutSeconds = 10;
+
+	@TempDir
+	File dir;
+
+	@AfterEach
+	public void tearDown() {
+		System.clearProperty("sunsetSimulation.bootReport");
+		System.clearProperty("sunsetSimulation.bootBudgetMillis");
+	}
+
+	@Test
+	public void headlessBootIsWithinBudget() throws Exception {
+		bootSequence boot = new bootSequence();
+		long began = System.nanoTime();
+		Future<Void> warmedUp = sunsetSimulation.startNative(boot);
+		buttonLayout layout = buttonLayout.load(sunsetSimulation.class, sunsetSimulation.layoutPath);
+		Future<spriteAtlas> atlas = sunsetSimulation.startAssets(boot, "assets", layout, null,
+				new File(dir, "cache"), 1);
+		warmedUp.get();
+		spriteAtlas sprites = atlas.get();
+		long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began);
+		// Every asset made it into the atlas, at its full size
+		for (int i = 0; i < layout.assetPaths().length; i++) {
+			assertTrue(sprites.region(i).width >= 100, layout.assetPaths()[i]);
+		}
+		Map<String, Long> phases = boot.getPhaseMillis();
+		assertTrue(phases.containsKey("jvm"));
+		assertTrue(phases.containsKey("native"));
+		assertTrue(phases.containsKey("assets"));
+		long budget = Long.getLong("sunsetSimulation.testBootBudgetMillis", bootBudgetMillis).longValue();
+		assertTrue(tookMillis <= budget, "boot took " + tookMillis + " ms, over its " + budget + " ms budget");
+	}
+
+	@Test
+	public void stagesRunSideBySide() throws Exception {
+		bootSequence boot = new bootSequence();
+		// Each stage waits for the other to start, which can only happen if they overlap
+		CountDownLatch started = new CountDownLatch(2);
+		Future<Boolean> first = boot.stage("first", meet(started));
+		Future<Boolean> second = boot.stage("second", meet(started));
+		assertTrue(first.get(timeoutSeconds, TimeUnit.SECONDS).booleanValue());
+		assertTrue(second.get(timeoutSeconds, TimeUnit.SECONDS).booleanValue());
+		assertTrue(boot.getPhaseMillis().containsKey("first"));
+		assertTrue(boot.getPhaseMillis().containsKey("second"));
+	}
+
+	@Test
+	public void writesTheReportAndKeepsToTheBudget() throws Exception {
+		File report = new File(dir, "boot.txt");
+		System.setProperty("sunsetSimulation.bootReport", report.getPath());
+		bootSequence boot = new bootSequence();
+		boot.begin("ui");
+		boot.end("ui");
+		assertTrue(boot.finish());
+		List<String> lines = Files.readAllLines(report.toPath(), StandardCharsets.UTF_8);
+		assertEquals(3, lines.size());
+		assertTrue(lines.get(0).startsWith("jvm: "));
+		assertTrue(lines.get(1).startsWith("ui: "));
+		assertTrue(lines.get(2).startsWith("interactive: "));
+
+		System.setProperty("sunsetSimulation.bootBudgetMillis", "0");
+		assertFalse(boot.finish());
+	}
+
+	private static Callable<Boolean> meet(final CountDownLatch started) {
+		return new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws InterruptedException {
+				started.countDown();
+				return Boolean.valueOf(started.await(timeoutSeconds, TimeUnit.SECONDS));
+			}
+		};
+	}
+
+}
@@ -0,0 +1,171 @@
+/**
+ * buttonLayoutTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks the overlay's layout at the resolutions
+ * the kiosks run at: that it fits the screen, that
+ * the buttons keep sharing edges and the timeline
+ * stays centered once snapped to pixels, and that
+ * each pre-scaled asset is the size of its button.
+ * Also that a bad layout file is refused.
+ */
+public class buttonLayoutTest {
+
+	private static final Dimension[] screens = {
+		new Dimension(1360, 768),
+		new Dimension(1920, 1080),
+		new Dimension(2560, 1440),
+		new Dimension(3840, 2160),
+		new Dimension(1280, 1024),
+	};
+	private static final String[] timeline = { "summary", "prestage", "stage1", "stage2", "stage3" };
+
+	private buttonLayout layout;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		layout = buttonLayout.load(sunsetSimulation.class, sunsetSimulation.layoutPath);
+	}
+
+	@Test
+	public void loadsTheDesign() {
+		assertEquals(new Dimension(1360, 768), layout.getDesignSize());
+		assertEquals(11, layout.getEntries().size());
+		buttonLayout.entry summary = entry("summary");
+		assertEquals(KeyEvent.VK_X, summary.key);
+		assertTrue(summary.radio);
+		// The original fixed layout's timelineOffset, (1360 - 938) / 2
+		assertEquals(211, summary.bounds.x);
+		// Idle and clicked for the six hold buttons, and active too for the five stages
+		assertEquals(6 * 2 + 5 * 3, layout.assetPaths().length);
+	}
+
+	@Test
+	public void fitsEveryScreen() {
+		for (Dimension screen : screens) {
+			double scale = layout.scaleToFit(screen);
+			Dimension size = layout.size(scale);
+			assertTrue(size.width <= screen.width && size.height <= screen.height, screen.toString());
+			// One side fills the screen
+			assertTrue(size.width == screen.width || size.height == screen.height, screen.toString());
+			Rectangle all = new Rectangle(size);
+			for (buttonLayout.entry entry : layout.getEntries()) {
+				assertTrue(all.contains(layout.bounds(entry, scale)), screen + " " + entry.id);
+			}
+		}
+	}
+
+	@Test
+	public void timelineStaysCenteredAndUnbroken() {
+		for (Dimension screen : screens) {
+			double scale = layout.scaleToFit(screen);
+			Rectangle previous = null;
+			for (String id : timeline) {
+				Rectangle r = layout.bounds(entry(id), scale);
+				if (previous != null) {
+					assertEquals(previous.x + previous.width, r.x, screen + " " + id);
+					assertEquals(previous.y, r.y, screen + " " + id);
+				}
+				previous = r;
+			}
+			int left = layout.bounds(entry(timeline[0]), scale).x;
+			int right = layout.size(scale).width - (previous.x + previous.width);
+			assertTrue(Math.abs(left - right) <= 1, screen + " " + left + " " + right);
+		}
+	}
+
+	@Test
+	public void cameraButtonsShareEdges() {
+		for (Dimension screen : screens) {
+			double scale = layout.scaleToFit(screen);
+			Rectangle left = layout.bounds(entry("left"), scale);
+			Rectangle right = layout.bounds(entry("right"), scale);
+			Rectangle up = layout.bounds(entry("up"), scale);
+			assertEquals(left.x + left.width, right.x, screen.toString());
+			assertEquals(left.y + left.height, up.y, screen.toString());
+			assertFalse(left.intersects(right) || left.intersects(up), screen.toString());
+		}
+	}
+
+	@Test
+	public void assetsArePrescaledToTheirButtons() {
+		for (Dimension screen : screens) {
+			double scale = layout.scaleToFit(screen);
+			assetLoader assets = new assetLoader(sunsetSimulation.class, null, null, scale);
+			List<buttonLayout.entry> entries = layout.getEntries();
+			for (buttonLayout.entry entry : entries) {
+				assets.preload(new String[]{ entry.asset(simulationButton.IDLE) });
+			}
+			for (buttonLayout.entry entry : entries) {
+				BufferedImage image = assets.image(entry.asset(simulationButton.IDLE));
+				Rectangle r = layout.bounds(entry, scale);
+				// Snapping the edges and the size separately can differ by a pixel
+				assertTrue(Math.abs(image.getWidth() - r.width) <= 1, screen + " " + entry.id);
+				assertTrue(Math.abs(image.getHeight() - r.height) <= 1, screen + " " + entry.id);
+			}
+			assets.finish();
+			assertEquals(0, assets.getMissing().size());
+		}
+	}
+
+	@Test
+	public void refusesBadLayouts() {
+		assertRefused("left VK_LEFT assets/left hold 0 0 10 10\n");
+		assertRefused("design 100 100\nleft VK_LEFT assets/left hold 95 0 10 10\n");
+		assertRefused("design 100 100\nleft VK_LEFT assets/left toggle 0 0 10 10\n");
+		assertRefused("design 100 100\nleft VK_NOPE assets/left hold 0 0 10 10\n");
+		assertRefused("design 100 100\nleft VK_LEFT assets/left hold 0 0 10 10\n"
+				+ "left VK_RIGHT assets/right hold 10 0 10 10\n");
+		assertRefused("design 100 100\n# no buttons\n");
+	}
+
+	private buttonLayout.entry entry(String id) {
+		for (buttonLayout.entry entry : layout.getEntries()) {
+			if (entry.id.equals(id)) {
+				return entry;
+			}
+		}
+		throw new AssertionError("no button " + id);
+	}
+
+	private static void assertRefused(final String text) {
+		assertThrows(IOException.class, new Executable() {
+			@Override
+			public void execute() throws IOException {
+				buttonLayout.parse(new StringReader(text), "test");
+			}
+		});
+	}
+
+}
@@ -0,0 +1,118 @@
+/**
+ * clickStateMachineTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks how clickStateMachine thins out a swipe.
+ * Frames are ended by hand, with no timer, so each
+ * test says exactly which events share a frame.
+ */
+public class clickStateMachineTest {
+
+	private final List<String> delivered = new ArrayList<String>();
+	private simulationButton a;
+	private simulationButton b;
+	private clickStateMachine clicks;
+
+	@BeforeEach
+	public void setUp() {
+		a = new simulationButton(null, 0, 0, 'A', new Rectangle(0, 0, 100, 100));
+		b = new simulationButton(null, 0, 0, 'B', new Rectangle(100, 0, 100, 100));
+		clicks = new clickStateMachine(new clickStateMachine.sink() {
+			@Override
+			public void click(simulationButton button, boolean released, long touchNanos) {
+				delivered.add((button == a ? "a" : "b") + (released ? " up" : " down"));
+			}
+		}, 0);
+	}
+
+	@Test
+	public void firstEventPassesStraightThrough() {
+		clicks.offer(a, clickStateMachine.PRESS, 0);
+		assertEquals(Arrays.asList("a down"), delivered);
+		clicks.endFrame();
+		clicks.offer(a, clickStateMachine.RELEASE, 0);
+		assertEquals(Arrays.asList("a down", "a up"), delivered);
+	}
+
+	@Test
+	public void quickTapWithinOneFrameGetsThrough() {
+		clicks.offer(a, clickStateMachine.PRESS, 0);
+		clicks.offer(a, clickStateMachine.RELEASE, 0);
+		assertEquals(Arrays.asList("a down"), delivered);
+		clicks.endFrame();
+		assertEquals(Arrays.asList("a down", "a up"), delivered);
+	}
+
+	@Test
+	public void dragOutAndBackCancelsOut() {
+		clicks.offer(a, clickStateMachine.PRESS, 0);
+		clicks.offer(a, clickStateMachine.EXIT, 0);
+		clicks.offer(b, clickStateMachine.ENTER, 0);
+		clicks.offer(b, clickStateMachine.EXIT, 0);
+		clicks.offer(a, clickStateMachine.ENTER, 0);
+		clicks.endFrame();
+		assertEquals(Arrays.asList("a down"), delivered);
+		assertEquals(5, clicks.getReceived());
+		assertEquals(1, clicks.getDelivered());
+		// Nothing survived, so the frame is over
+		assertFalse(clicks.isInFrame());
+	}
+
+	@Test
+	public void releaseBeforePressIsDropped() {
+		clicks.offer(a, clickStateMachine.PRESS, 0);
+		clicks.offer(a, clickStateMachine.EXIT, 0);
+		clicks.offer(b, clickStateMachine.ENTER, 0);
+		clicks.endFrame();
+		// clickHandler lets go of a itself when b is pressed
+		assertEquals(Arrays.asList("a down", "b down"), delivered);
+		// A swipe still under way keeps being coalesced
+		assertTrue(clicks.isInFrame());
+		clicks.offer(b, clickStateMachine.RELEASE, 0);
+		clicks.endFrame();
+		assertEquals(Arrays.asList("a down", "b down", "b up"), delivered);
+	}
+
+	@Test
+	public void endStateMatchesEveryEventDelivered() {
+		clicks.offer(a, clickStateMachine.PRESS, 0);
+		for (int i = 0; i < 10; i++) {
+			clicks.offer(a, clickStateMachine.EXIT, 0);
+			clicks.offer(b, clickStateMachine.ENTER, 0);
+			clicks.offer(b, clickStateMachine.EXIT, 0);
+			clicks.offer(a, clickStateMachine.ENTER, 0);
+		}
+		clicks.offer(a, clickStateMachine.EXIT, 0);
+		clicks.offer(b, clickStateMachine.ENTER, 0);
+		clicks.offer(b, clickStateMachine.RELEASE, 0);
+		clicks.endFrame();
+		assertEquals(Arrays.asList("a down", "b down", "b up"), delivered);
+	}
+
+}
@@ -0,0 +1,278 @@
+/**
+ * controlServerTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.EventQueue;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Talks to controlServer over a loopback socket.
+ * Commands go through controlDispatcher and the
+ * real button logic into a recordingKeyInjector,
+ * so each test checks the keys that come out;
+ * malformed lines are answered with errors, and a
+ * client that outruns a blocked EDT is held back
+ * without losing a command.
+ */
+public class controlServerTest {
+
+	private static final long timeoutNanos = TimeUnit.SECONDS.toNanos(5);
+
+	private final Map<String, simulationButton> buttonsById = new HashMap<String, simulationButton>();
+	private final Set<String> stages = new HashSet<String>();
+	private final recordingKeyInjector keys = new recordingKeyInjector();
+	private buttonController controller;
+	private controlServer server;
+	private Socket socket;
+	private BufferedReader in;
+	private OutputStream out;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		buttonLayout layout = buttonLayout.load(sunsetSimulation.class, sunsetSimulation.layoutPath);
+		spriteAtlas atlas = new spriteAtlas(null, new BufferedImage[]{
+				new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB) });
+		for (buttonLayout.entry entry : layout.getEntries()) {
+			buttonsById.put(entry.id, entry.radio
+					? new simulationButton(atlas, 0, 0, 0, entry.key, entry.bounds)
+					: new simulationButton(atlas, 0, 0, entry.key, entry.bounds));
+			if (entry.radio) {
+				stages.add(entry.id);
+			}
+		}
+		final pressedKeySet pressed = new pressedKeySet(layout.keys());
+		latencyStats latency = new latencyStats(layout.keys());
+		final inputInjector injector = new inputInjector(keys, pressed,
+				sunsetSimulation.createPulseScheduler(layout.keys()), latency, null, new Runnable() {
+					@Override
+					public void run() {}
+				});
+		controller = new buttonController(injector, latency, null, null, null);
+		clickStateMachine clicks = new clickStateMachine(controller, sunsetSimulation.clickFrameMillis);
+		start(new controlDispatcher(buttonsById, clicks, controller, injector, new Runnable() {
+			@Override
+			public void run() { sunsetSimulation.releaseKeys(pressed, null, injector); }
+		}));
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		socket.close();
+		server.stop();
+	}
+
+	@Test
+	public void commandsBecomeKeys() throws Exception {
+		assertEquals("ok", send("press up"));
+		awaitEvents(KeyEvent.VK_UP);
+		assertEquals("ok", send("release up"));
+		awaitEvents(KeyEvent.VK_UP, -KeyEvent.VK_UP);
+
+		// A pulse lets its own key go, then the button settles
+		assertEquals("ok", send("pulse left"));
+		awaitEvents(KeyEvent.VK_UP, -KeyEvent.VK_UP, KeyEvent.VK_RIGHT, -KeyEvent.VK_RIGHT);
+		awaitSettled();
+
+		assertEquals("ok", send("stage stage1"));
+		awaitEvents(KeyEvent.VK_UP, -KeyEvent.VK_UP, KeyEvent.VK_RIGHT, -KeyEvent.VK_RIGHT,
+				KeyEvent.VK_ALT, -KeyEvent.VK_ALT);
+		awaitSettled();
+		assertSame(buttonsById.get("stage1"), onEdt(new Callable<simulationButton>() {
+			@Override
+			public simulationButton call() { return controller.getActiveButton(); }
+		}));
+
+		assertEquals("ok", send("press down"));
+		assertEquals("ok", send("up"));
+		awaitEvents(KeyEvent.VK_UP, -KeyEvent.VK_UP, KeyEvent.VK_RIGHT, -KeyEvent.VK_RIGHT,
+				KeyEvent.VK_ALT, -KeyEvent.VK_ALT, KeyEvent.VK_DOWN, -KeyEvent.VK_DOWN);
+	}
+
+	@Test
+	public void malformedCommandsAreAnsweredWithErrors() throws Exception {
+		assertTrue(send("jump").startsWith("error unknown command"));
+		assertTrue(send("press").startsWith("error unknown button"));
+		assertTrue(send("press sideways").startsWith("error unknown button"));
+		assertTrue(send("press up down").startsWith("error unknown button"));
+		assertTrue(send("stage up").startsWith("error not a stage"));
+		assertTrue(send("up now").startsWith("error unknown command"));
+		assertTrue(send("").startsWith("error unknown command"));
+
+		char[] line = new char[128];
+		Arrays.fill(line, 'x');
+		write(new String(line));
+		assertEquals("error line too long", in.readLine());
+		// What's left of the long line ends with the newline
+		assertTrue(send("").startsWith("error unknown command"));
+
+		// Nothing got through, and the connection still works
+		assertTrue(keys.getEvents().isEmpty());
+		assertEquals("ok", send("pulse up"));
+		awaitEvents(KeyEvent.VK_UP, -KeyEvent.VK_UP);
+	}
+
+	@Test
+	public void clientIsHeldBackWhileTheEdtIsBusy() throws Exception {
+		tearDown();
+		final List<String> received = new ArrayList<String>();
+		start(new controlServer.sink() {
+			@Override
+			public void command(int kind, String button) {
+				assertTrue(EventQueue.isDispatchThread());
+				synchronized (received) {
+					received.add(kind + " " + button);
+				}
+			}
+		});
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		EventQueue.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+		String[] ids = buttonsById.keySet().toArray(new String[0]);
+		List<String> expected = new ArrayList<String>();
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			lines.append("pulse ").append(ids[i % ids.length]).append('\n');
+			expected.add(controlServer.PULSE + " " + ids[i % ids.length]);
+		}
+		out.write(lines.toString().getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+
+		// The queue's worth is taken, then nothing until the EDT drains it
+		for (int i = 0; i < 64; i++) {
+			assertEquals("ok", in.readLine());
+		}
+		Thread.sleep(300);
+		assertFalse(in.ready());
+		synchronized (received) {
+			assertTrue(received.isEmpty());
+		}
+
+		release.countDown();
+		for (int i = 64; i < 200; i++) {
+			assertEquals("ok", in.readLine());
+		}
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (System.nanoTime() < deadline) {
+			synchronized (received) {
+				if (received.size() >= expected.size()) {
+					break;
+				}
+			}
+			Thread.sleep(5);
+		}
+		synchronized (received) {
+			assertEquals(expected, received);
+		}
+	}
+
+	private void start(controlServer.sink sink) throws IOException {
+		server = new controlServer(0, new HashSet<String>(buttonsById.keySet()), stages, sink);
+		server.start();
+		socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		socket.setSoTimeout((int)TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+		in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+		out = socket.getOutputStream();
+	}
+
+	private String send(String command) throws IOException {
+		write(command + "\n");
+		return in.readLine();
+	}
+
+	private void write(String text) throws IOException {
+		out.write(text.getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+	}
+
+	/**
+	 * @param expected  every key event so far, as
+	 *                  recordingKeyInjector records them
+	 */
+	private void awaitEvents(int... expected) throws InterruptedException {
+		List<Integer> events = new ArrayList<Integer>();
+		for (int key : expected) {
+			events.add(Integer.valueOf(key));
+		}
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (keys.getEvents().size() < events.size() && System.nanoTime() < deadline) {
+			Thread.sleep(2);
+		}
+		assertEquals(events, keys.getEvents());
+	}
+
+	/**
+	 * Waits for the pulsed button to be shown let go.
+	 */
+	private void awaitSettled() throws Exception {
+		Callable<simulationButton> clicked = new Callable<simulationButton>() {
+			@Override
+			public simulationButton call() { return controller.getClickedButton(); }
+		};
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (onEdt(clicked) != null && System.nanoTime() < deadline) {
+			Thread.sleep(2);
+		}
+		assertNull(onEdt(clicked));
+	}
+
+	private static <T> T onEdt(Callable<T> read) throws Exception {
+		FutureTask<T> task = new FutureTask<T>(read);
+		EventQueue.invokeAndWait(task);
+		return task.get();
+	}
+
+}
@@ -0,0 +1,163 @@
+/**
+ * dirtyRegionsTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks that a tap repaints only the buttons it
+ * changed, never the whole overlay, by driving the
+ * real layout's buttons through buttonController
+ * and counting dirtyRegions' pixels. Everything
+ * runs on the EDT, as it does in the overlay.
+ */
+public class dirtyRegionsTest {
+
+	private buttonLayout layout;
+	private JPanel panel;
+	private dirtyRegions repaints;
+	private buttonController controller;
+	private final Map<String, simulationButton> buttons = new HashMap<String, simulationButton>();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		layout = buttonLayout.load(sunsetSimulation.class, sunsetSimulation.layoutPath);
+		Dimension size = layout.getDesignSize();
+		panel = new JPanel(null);
+		panel.setSize(size);
+		// The pixels don't matter here, only where the buttons are
+		spriteAtlas atlas = new spriteAtlas(null, new BufferedImage[]{
+				new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE) });
+		for (buttonLayout.entry entry : layout.getEntries()) {
+			Rectangle bounds = layout.bounds(entry, 1);
+			simulationButton button = entry.radio
+					? new simulationButton(atlas, 0, 0, 0, entry.key, bounds)
+					: new simulationButton(atlas, 0, 0, entry.key, bounds);
+			panel.add(button);
+			buttons.put(entry.id, button);
+		}
+		repaints = new dirtyRegions(panel);
+		inputInjector injector = new inputInjector(new recordingKeyInjector(), new pressedKeySet(layout.keys()),
+				new keyPulseScheduler(TimeUnit.MILLISECONDS.toNanos(100)), null, null, new Runnable() {
+					@Override
+					public void run() {}
+				});
+		controller = new buttonController(injector, new latencyStats(layout.keys()), null, repaints, null);
+	}
+
+	@Test
+	public void tapRepaintsOnlyTheButton() throws Exception {
+		onEdt(new Runnable() {
+			@Override
+			public void run() {
+				simulationButton left = buttons.get("left");
+				long area = area(left);
+				tap(left, false);
+				assertEquals(area, repaints.getLastPixels());
+				tap(left, true);
+				assertEquals(area, repaints.getLastPixels());
+				assertEquals(2 * area, repaints.getTotalPixels());
+				assertTrue(repaints.getTotalPixels() < frameArea());
+			}
+		});
+	}
+
+	@Test
+	public void stageChangeRepaintsOnlyTheTwoStages() throws Exception {
+		onEdt(new Runnable() {
+			@Override
+			public void run() {
+				simulationButton summary = buttons.get("summary");
+				simulationButton stage1 = buttons.get("stage1");
+				tap(summary, false);
+				tap(summary, true);
+				tap(stage1, false);
+				assertEquals(area(summary) + area(stage1), repaints.getLastPixels());
+				assertEquals(simulationButton.IDLE, summary.curState);
+				assertEquals(simulationButton.CLICKED, stage1.curState);
+				tap(stage1, true);
+				assertEquals(area(stage1), repaints.getLastPixels());
+				assertEquals(simulationButton.ACTIVE, stage1.curState);
+			}
+		});
+	}
+
+	@Test
+	public void slideRepaintsBothButtonsInOneFlush() throws Exception {
+		onEdt(new Runnable() {
+			@Override
+			public void run() {
+				simulationButton left = buttons.get("left");
+				simulationButton right = buttons.get("right");
+				tap(left, false);
+				// Sliding across lifts left and presses right in one pass
+				tap(right, false);
+				assertEquals(area(left) + area(right), repaints.getLastPixels());
+				assertEquals(2, repaints.getFlushes());
+			}
+		});
+	}
+
+	@Test
+	public void unchangedButtonRepaintsNothing() throws Exception {
+		onEdt(new Runnable() {
+			@Override
+			public void run() {
+				simulationButton left = buttons.get("left");
+				tap(left, true);
+				assertEquals(0, repaints.getFlushes());
+				assertEquals(0, repaints.getTotalPixels());
+			}
+		});
+	}
+
+	/**
+	 * Passes one touch to the controller and flushes
+	 * the repaints it marked, as the end of the event
+	 * queue pass would.
+	 */
+	private void tap(simulationButton button, boolean released) {
+		controller.click(button, released, System.nanoTime());
+		repaints.flush();
+	}
+
+	private static long area(simulationButton button) {
+		return (long)button.getWidth() * button.getHeight();
+	}
+
+	private long frameArea() {
+		return (long)panel.getWidth() * panel.getHeight();
+	}
+
+	private static void onEdt(Runnable test) throws Exception {
+		SwingUtilities.invokeAndWait(test);
+	}
+
+}
@@ -0,0 +1,109 @@
+/**
+ * fixedWindowTableTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks that fixedWindowTable matches titles the
+ * way user32WindowTable does, from the start or
+ * anywhere in the title, so tests run against it
+ * find the same windows the exhibit would.
+ */
+public class fixedWindowTableTest {
+
+	private final fixedWindowTable windows = new fixedWindowTable("Sunset Simulation",
+			"Notes on Sunset Simulation", "Sunset");
+
+	@Test
+	public void startingMatchesOnlyFromTheStart() {
+		assertTrue(windows.titleMatches(1, "Sunset", true));
+		assertTrue(windows.titleMatches(1, "Sunset Simulation", true));
+		assertFalse(windows.titleMatches(2, "Sunset", true));
+		assertFalse(windows.titleMatches(1, "Simulation", true));
+	}
+
+	@Test
+	public void otherwiseMatchesAnywhereInTheTitle() {
+		assertTrue(windows.titleMatches(1, "Simulation", false));
+		assertTrue(windows.titleMatches(2, "Sunset", false));
+		assertTrue(windows.titleMatches(2, "on Sunset Sim", false));
+		assertTrue(windows.titleMatches(3, "Sunset", false));
+		assertFalse(windows.titleMatches(3, "Sunset Simulation", false));
+	}
+
+	@Test
+	public void matchingIsCaseSensitive() {
+		assertFalse(windows.titleMatches(1, "sunset", true));
+		assertFalse(windows.titleMatches(1, "SIMULATION", false));
+	}
+
+	@Test
+	public void nameLongerThanTheTitleNeverMatches() {
+		assertFalse(windows.titleMatches(3, "Sunset Simulation", true));
+		assertFalse(windows.titleMatches(3, "Sunset ", false));
+	}
+
+	@Test
+	public void handlesOutsideTheTableMatchNothing() {
+		assertFalse(windows.isWindow(0));
+		assertFalse(windows.isWindow(4));
+		assertFalse(windows.titleMatches(0, "Sunset", false));
+		assertFalse(windows.titleMatches(4, "Sunset", false));
+		assertEquals(0, windows.processId(4));
+	}
+
+	@Test
+	public void enumeratesInOrderUntilTold() {
+		final List<Long> visited = new ArrayList<Long>();
+		windows.enumerate(new windowTable.visitor() {
+			@Override
+			public boolean visit(long hWnd) {
+				visited.add(Long.valueOf(hWnd));
+				return hWnd < 2;
+			}
+		});
+		assertEquals(Arrays.asList(Long.valueOf(1), Long.valueOf(2)), visited);
+	}
+
+	@Test
+	public void focusMovesAndIsCounted() {
+		assertEquals(0, windows.getForeground());
+		assertTrue(windows.setForeground(2));
+		assertTrue(windows.setForeground(2));
+		assertEquals(2, windows.getForeground());
+		assertEquals(1, windows.getFocusChanges());
+		assertFalse(windows.setForeground(7));
+		assertEquals(2, windows.getForeground());
+	}
+
+	@Test
+	public void windowsBelongToNoProcessUntilGivenOne() {
+		assertEquals(0, windows.processId(1));
+		windows.setProcessId(1, 1234);
+		assertEquals(1234, windows.processId(1));
+		assertEquals(0, windows.processId(2));
+	}
+
+}
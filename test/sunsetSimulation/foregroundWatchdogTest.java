@@ -0,0 +1,210 @@
+/**
+ * foregroundWatchdogTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Drives foregroundWatchdog from a scripted
+ * foregroundEventSource and checks that the
+ * overlay is restored and focused in one EDT
+ * task before focus goes back to the simulation.
+ */
+public class foregroundWatchdogTest {
+
+	private static final long ours = 1;
+	private static final long foreign = 2;
+	private static final long neverIdle = TimeUnit.HOURS.toNanos(1);
+
+	@Test
+	public void foreignWindowRaisesTheOverlayThenRefocuses() throws InterruptedException {
+		scriptedSource source = new scriptedSource();
+		recordingTarget target = new recordingTarget(1);
+		new foregroundWatchdog(target, source, neverIdle).start();
+
+		source.fire(foreign);
+		assertTrue(target.focused.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("restore", "focus", "raised", "focusSimulation"), target.calls());
+		// Restored and focused by the same EDT task
+		assertNotNull(target.restoreEvent);
+		assertSame(target.restoreEvent, target.focusEvent);
+		assertEquals(0, target.released);
+	}
+
+	@Test
+	public void burstOfChangesIsOneRecovery() throws InterruptedException {
+		scriptedSource source = new scriptedSource();
+		recordingTarget target = new recordingTarget(2);
+		new foregroundWatchdog(target, source, neverIdle).start();
+
+		source.fire(ours);
+		source.fire(foreign);
+		source.fire(foreign + 1);
+		source.fire(ours);
+		source.fire(foreign + 2);
+		// A change after the first recovery ran; anything
+		// left over from the burst would run before it
+		awaitCalls(target, 4);
+		source.fire(foreign);
+		assertTrue(target.focused.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("restore", "focus", "raised", "focusSimulation",
+				"restore", "focus", "raised", "focusSimulation"), target.calls());
+	}
+
+	@Test
+	public void ownWindowsAreLeftAlone() throws InterruptedException {
+		scriptedSource source = new scriptedSource();
+		recordingTarget target = new recordingTarget(1);
+		new foregroundWatchdog(target, source, neverIdle).start();
+
+		source.fire(ours);
+		source.fire(ours);
+		source.fire(foreign);
+		assertTrue(target.focused.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("restore", "focus", "raised", "focusSimulation"), target.calls());
+	}
+
+	@Test
+	public void idleBackstopRecoversAndReleasesKeys() throws InterruptedException {
+		recordingTarget target = new recordingTarget(1);
+		new foregroundWatchdog(target, null, TimeUnit.MILLISECONDS.toNanos(50)).start();
+
+		assertTrue(target.focused.await(5, TimeUnit.SECONDS));
+		awaitCalls(target, 5);
+		assertEquals(Arrays.asList("restore", "focus", "raised", "focusSimulation", "releaseKeys"),
+				target.calls().subList(0, 5));
+		assertSame(target.restoreEvent, target.focusEvent);
+	}
+
+	@Test
+	public void inputHoldsOffTheBackstop() throws InterruptedException {
+		recordingTarget target = new recordingTarget(1);
+		foregroundWatchdog watchdog = new foregroundWatchdog(target, null, TimeUnit.MILLISECONDS.toNanos(300));
+		watchdog.start();
+		long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(600);
+		while (System.nanoTime() < until) {
+			watchdog.touch();
+			assertFalse(target.focused.await(20, TimeUnit.MILLISECONDS));
+		}
+		assertTrue(target.calls().isEmpty());
+		assertTrue(target.focused.await(5, TimeUnit.SECONDS));
+	}
+
+	private static void awaitCalls(recordingTarget target, int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (target.calls().size() < count && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(target.calls().size() >= count);
+	}
+
+	/**
+	 * Delivers foreground changes when told to,
+	 * on the calling thread.
+	 */
+	private static class scriptedSource implements foregroundEventSource {
+		private volatile listener listener;
+
+		@Override
+		public void start(listener l) {
+			listener = l;
+		}
+
+		void fire(long hWnd) {
+			listener.foregroundChanged(hWnd);
+		}
+	}
+
+	/**
+	 * Raises through sunsetSimulation.raiseOverlay,
+	 * as the overlay does, and records each step.
+	 */
+	private static class recordingTarget implements foregroundWatchdog.target {
+		private final List<String> calls = new ArrayList<String>();
+		final CountDownLatch focused;
+		volatile AWTEvent restoreEvent;
+		volatile AWTEvent focusEvent;
+		volatile int released;
+
+		recordingTarget(int recoveries) {
+			focused = new CountDownLatch(recoveries);
+		}
+
+		synchronized List<String> calls() {
+			return new ArrayList<String>(calls);
+		}
+
+		private synchronized void call(String name) {
+			calls.add(name);
+		}
+
+		@Override
+		public boolean isOurs(long hWnd) {
+			return hWnd == ours;
+		}
+
+		@Override
+		public void raiseOverlay(final Runnable raised) {
+			sunsetSimulation.raiseOverlay(new Runnable() {
+				@Override
+				public void run() {
+					assertTrue(EventQueue.isDispatchThread());
+					restoreEvent = EventQueue.getCurrentEvent();
+					call("restore");
+				}
+			}, new Runnable() {
+				@Override
+				public void run() {
+					focusEvent = EventQueue.getCurrentEvent();
+					call("focus");
+				}
+			}, new Runnable() {
+				@Override
+				public void run() {
+					call("raised");
+					raised.run();
+				}
+			});
+		}
+
+		@Override
+		public void focusSimulation() {
+			call("focusSimulation");
+			focused.countDown();
+		}
+
+		@Override
+		public void releaseKeys() {
+			released++;
+			call("releaseKeys");
+		}
+	}
+
+}
@@ -0,0 +1,275 @@
+/**
+ * healthMonitorTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Runs healthMonitor's rounds by hand against a
+ * fake healthProbe, checking when a restart is
+ * handed to the target, and checks that the
+ * user32PingProbe's wait stays out of the budget.
+ */
+public class healthMonitorTest {
+
+	private static final long window = 42;
+	private static final long budgetNanos = TimeUnit.MILLISECONDS.toNanos(50);
+	private static final long timeoutNanos = TimeUnit.SECONDS.toNanos(5);
+
+	@Test
+	public void restartsAfterFiveMissesInARow() {
+		fakeTarget target = new fakeTarget();
+		fakeProbe probe = new fakeProbe(healthProbe.UNRESPONSIVE);
+		healthMonitor monitor = monitor(target, probe);
+		for (int i = 0; i < 4; i++) {
+			monitor.probe();
+		}
+		assertEquals(0, target.restarts);
+		monitor.probe();
+		assertEquals(1, target.restarts);
+		assertEquals(1, monitor.getRestarts());
+		assertEquals(5, probe.checks);
+	}
+
+	@Test
+	public void responsiveSimulationClearsTheMisses() {
+		fakeTarget target = new fakeTarget();
+		fakeProbe probe = new fakeProbe(healthProbe.UNRESPONSIVE);
+		healthMonitor monitor = monitor(target, probe);
+		for (int i = 0; i < 4; i++) {
+			monitor.probe();
+		}
+		probe.result = healthProbe.HEALTHY;
+		monitor.probe();
+		probe.result = healthProbe.UNRESPONSIVE;
+		for (int i = 0; i < 4; i++) {
+			monitor.probe();
+		}
+		assertEquals(0, target.restarts);
+		monitor.probe();
+		assertEquals(1, target.restarts);
+	}
+
+	@Test
+	public void unknownKeepsTheMisses() {
+		fakeTarget target = new fakeTarget();
+		fakeProbe probe = new fakeProbe(healthProbe.UNRESPONSIVE);
+		healthMonitor monitor = monitor(target, probe);
+		for (int i = 0; i < 4; i++) {
+			monitor.probe();
+		}
+		probe.result = healthProbe.UNKNOWN;
+		monitor.probe();
+		assertEquals(0, target.restarts);
+		probe.result = healthProbe.UNRESPONSIVE;
+		monitor.probe();
+		assertEquals(1, target.restarts);
+	}
+
+	@Test
+	public void restartedSimulationStartsAfresh() {
+		fakeTarget target = new fakeTarget();
+		fakeProbe probe = new fakeProbe(healthProbe.UNRESPONSIVE);
+		healthMonitor monitor = monitor(target, probe);
+		for (int i = 0; i < 5; i++) {
+			monitor.probe();
+		}
+		assertEquals(1, target.restarts);
+		assertEquals(1, probe.resets);
+
+		// Down while it relaunches: nothing is probed
+		target.up = false;
+		monitor.probe();
+		assertEquals(5, probe.checks);
+
+		target.up = true;
+		for (int i = 0; i < 4; i++) {
+			monitor.probe();
+		}
+		assertEquals(2, probe.resets);
+		assertEquals(1, target.restarts);
+		monitor.probe();
+		assertEquals(2, target.restarts);
+	}
+
+	@Test
+	public void probeOverBudgetIsDropped() {
+		fakeTarget target = new fakeTarget();
+		fakeProbe probe = new fakeProbe(healthProbe.UNRESPONSIVE);
+		healthMonitor monitor = new healthMonitor(target, Collections.<healthProbe>singletonList(probe), 0,
+				budgetNanos);
+		for (int i = 0; i < 10; i++) {
+			monitor.probe();
+		}
+		assertEquals(3, probe.checks);
+		assertEquals(0, target.restarts);
+	}
+
+	@Test
+	public void pingWaitsOutsideTheCheck() throws InterruptedException {
+		scriptedSender sender = new scriptedSender();
+		user32PingProbe probe = new user32PingProbe(sender);
+
+		assertEquals(healthProbe.UNKNOWN, probe.check(window, budgetNanos));
+		assertTrue(sender.pinged.tryAcquire(5, TimeUnit.SECONDS));
+		// The ping is still waiting for its answer, yet check() is back
+		assertEquals(healthProbe.UNKNOWN, probe.check(window, budgetNanos));
+		assertEquals(Arrays.asList(Long.valueOf(window)), sender.windows());
+
+		sender.answers.put(Boolean.FALSE);
+		assertEquals(healthProbe.UNRESPONSIVE, nextVerdict(probe));
+		assertTrue(sender.pinged.tryAcquire(5, TimeUnit.SECONDS));
+		sender.answers.put(Boolean.TRUE);
+		assertEquals(healthProbe.HEALTHY, nextVerdict(probe));
+	}
+
+	@Test
+	public void resetDiscardsThePingInFlight() throws InterruptedException {
+		scriptedSender sender = new scriptedSender();
+		user32PingProbe probe = new user32PingProbe(sender);
+
+		probe.check(window, budgetNanos);
+		assertTrue(sender.pinged.tryAcquire(5, TimeUnit.SECONDS));
+		probe.reset();
+		sender.answers.put(Boolean.FALSE);
+		// Once the stale answer is in, the next check pings again
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (!sender.pinged.tryAcquire()) {
+			assertEquals(healthProbe.UNKNOWN, probe.check(window, budgetNanos));
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	@Test
+	public void unansweredPingsRestartTheSimulation() throws InterruptedException {
+		fakeTarget target = new fakeTarget();
+		scriptedSender sender = new scriptedSender();
+		healthMonitor monitor = monitor(target, new user32PingProbe(sender));
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (target.restarts == 0 && System.nanoTime() < deadline) {
+			monitor.probe();
+			if (sender.pinged.tryAcquire()) {
+				sender.answers.put(Boolean.FALSE);
+			}
+			Thread.sleep(1);
+		}
+		// A probe over budget would have been dropped first
+		assertEquals(1, target.restarts);
+	}
+
+	private static healthMonitor monitor(fakeTarget target, healthProbe probe) {
+		return new healthMonitor(target, Collections.singletonList(probe), budgetNanos, budgetNanos);
+	}
+
+	private static int nextVerdict(user32PingProbe probe) throws InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		int result;
+		while ((result = probe.check(window, budgetNanos)) == healthProbe.UNKNOWN && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		return result;
+	}
+
+	/**
+	 * A simulation that is up until told otherwise,
+	 * and counts its restarts.
+	 */
+	private static class fakeTarget implements healthMonitor.target {
+		volatile boolean up = true;
+		volatile int restarts;
+
+		@Override
+		public boolean isUp() {
+			return up;
+		}
+
+		@Override
+		public long window() {
+			return window;
+		}
+
+		@Override
+		public void restart() {
+			restarts++;
+		}
+	}
+
+	/**
+	 * Reports whatever it is set to.
+	 */
+	private static class fakeProbe implements healthProbe {
+		volatile int result;
+		volatile int checks;
+		volatile int resets;
+
+		fakeProbe(int result) {
+			this.result = result;
+		}
+
+		@Override
+		public String name() {
+			return "fake";
+		}
+
+		@Override
+		public void reset() {
+			resets++;
+		}
+
+		@Override
+		public int check(long hWnd, long budgetNanos) {
+			checks++;
+			return result;
+		}
+	}
+
+	/**
+	 * Holds each ping until the test answers it.
+	 */
+	private static class scriptedSender implements user32PingProbe.sender {
+		final BlockingQueue<Boolean> answers = new LinkedBlockingQueue<Boolean>();
+		final Semaphore pinged = new Semaphore(0);
+		private final BlockingQueue<Long> windows = new LinkedBlockingQueue<Long>();
+
+		@Override
+		public boolean ping(long hWnd, int timeoutMillis) {
+			windows.add(Long.valueOf(hWnd));
+			pinged.release();
+			try {
+				return answers.take().booleanValue();
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+
+		List<Long> windows() {
+			return Arrays.asList(windows.toArray(new Long[0]));
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+/**
+ * injectorThreadTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks that one station's failures can't stop
+ * the shared injectorThread delivering the other
+ * stations' keys, and that a batch the backend
+ * failed to send isn't counted as delivered.
+ */
+public class injectorThreadTest {
+
+	private static final int[] keys = { KeyEvent.VK_A };
+	private static final long pulseNanos = TimeUnit.MILLISECONDS.toNanos(20);
+	private static final long timeoutNanos = TimeUnit.SECONDS.toNanos(5);
+
+	@Test
+	public void survivesABackendThatThrowsAnError() throws InterruptedException {
+		injectorThread thread = new injectorThread();
+		pressedKeySet failingKeys = new pressedKeySet(keys);
+		inputInjector failing = injector(new keyInjector() {
+			@Override
+			public void send(int[] keys, boolean[] down, int count) {
+				throw new Error("backend failed");
+			}
+		}, failingKeys, thread);
+		recordingKeyInjector recorder = new recordingKeyInjector();
+		pressedKeySet workingKeys = new pressedKeySet(keys);
+		inputInjector working = injector(recorder, workingKeys, thread);
+
+		inputInjector.command press = failing.press(KeyEvent.VK_A);
+		assertTrue(await(press));
+		assertTrue(press.isFailed());
+		// The OS never saw the key go down
+		assertTrue(failingKeys.isEmpty());
+
+		inputInjector.command other = working.press(KeyEvent.VK_A);
+		assertTrue(await(other));
+		assertFalse(other.isFailed());
+		assertTrue(workingKeys.isDown(KeyEvent.VK_A));
+		assertTrue(await(working.release(KeyEvent.VK_A)));
+		assertEquals(Arrays.asList(Integer.valueOf(KeyEvent.VK_A), Integer.valueOf(-KeyEvent.VK_A)),
+				recorder.getEvents());
+		assertEquals(1, failing.getSendFailures());
+		assertEquals(0, working.getSendFailures());
+	}
+
+	@Test
+	public void failedPulseIsNotReleasedLater() throws InterruptedException {
+		injectorThread thread = new injectorThread();
+		inputInjector failing = injector(new keyInjector() {
+			@Override
+			public void send(int[] keys, boolean[] down, int count) {
+				throw new IllegalStateException("backend failed");
+			}
+		}, new pressedKeySet(keys), thread);
+		assertTrue(await(failing.pulse(KeyEvent.VK_A, 0)));
+		Thread.sleep(TimeUnit.NANOSECONDS.toMillis(pulseNanos * 5));
+		// Only the key-down was tried; no release for a key that never went down
+		assertEquals(1, failing.getSendFailures());
+	}
+
+	@Test
+	public void dropsAnInjectorThatThrowsWhileScheduling() throws InterruptedException {
+		injectorThread thread = new injectorThread();
+		new inputInjector(new recordingKeyInjector(), new pressedKeySet(keys),
+				new keyPulseScheduler(pulseNanos), null, null, nothing(), thread) {
+			@Override
+			long nanosUntilNext(long now) {
+				throw new IllegalStateException("scheduler broken");
+			}
+		};
+		recordingKeyInjector recorder = new recordingKeyInjector();
+		inputInjector working = injector(recorder, new pressedKeySet(keys), thread);
+
+		assertTrue(await(working.pulse(KeyEvent.VK_A, 0)));
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (recorder.getEvents().size() < 2 && deadline - System.nanoTime() > 0) {
+			Thread.sleep(1);
+		}
+		assertEquals(Arrays.asList(Integer.valueOf(KeyEvent.VK_A), Integer.valueOf(-KeyEvent.VK_A)),
+				recorder.getEvents());
+		assertTrue(await(working.press(KeyEvent.VK_A)));
+	}
+
+	private static inputInjector injector(keyInjector backend, pressedKeySet pressed, injectorThread thread) {
+		return new inputInjector(backend, pressed, new keyPulseScheduler(pulseNanos), null, null, nothing(),
+				thread);
+	}
+
+	private static Runnable nothing() {
+		return new Runnable() {
+			@Override
+			public void run() {}
+		};
+	}
+
+	private static boolean await(inputInjector.command c) throws InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (!c.isDone()) {
+			if (deadline - System.nanoTime() < 0) {
+				return false;
+			}
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,248 @@
+/**
+ * inputReplayerTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.event.KeyEvent;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Records button events with inputRecorder, replays
+ * the file with inputReplayer into its
+ * recordingKeyInjector, and checks the keys that
+ * come out, the replay's timing, and that damaged
+ * recordings are refused rather than half played.
+ */
+public class inputReplayerTest {
+
+	private static final String up = "+" + KeyEvent.getKeyText(KeyEvent.VK_UP);
+	private static final String upReleased = "-" + KeyEvent.getKeyText(KeyEvent.VK_UP);
+	private static final String down = "+" + KeyEvent.getKeyText(KeyEvent.VK_DOWN);
+	private static final String downReleased = "-" + KeyEvent.getKeyText(KeyEvent.VK_DOWN);
+
+	@TempDir
+	File dir;
+
+	private buttonLayout layout;
+	private File file;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		layout = buttonLayout.load(sunsetSimulation.class, sunsetSimulation.layoutPath);
+		file = new File(dir, "recording.ssr");
+	}
+
+	@Test
+	public void roundTripInjectsTheRecordedKeys() throws Exception {
+		recording recording = new recording("up", "down");
+		recording.event(0, clickStateMachine.PRESS, 0);
+		recording.event(0, clickStateMachine.RELEASE, 100);
+		recording.event(1, clickStateMachine.PRESS, 100);
+		recording.event(1, clickStateMachine.RELEASE, 100);
+		assertEquals(4, recording.close());
+
+		inputReplayer replayer = replay(0);
+		assertEquals(Arrays.asList(up, upReleased, down, downReleased), replayer.getSequence());
+		assertTrue(replayer.getHeldKeys().isEmpty());
+	}
+
+	@Test
+	public void replayKeepsTheRecordedClock() throws Exception {
+		recording recording = new recording("up");
+		recording.event(0, clickStateMachine.PRESS, 0);
+		recording.event(0, clickStateMachine.RELEASE, 150);
+		recording.event(0, clickStateMachine.PRESS, 150);
+		recording.event(0, clickStateMachine.RELEASE, 150);
+		recording.close();
+
+		inputReplayer replayer = replay(1);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(450), replayer.getRecordedNanos());
+		// Parked until each event is due, never ahead of it
+		assertTrue(replayer.getReplayNanos() >= replayer.getRecordedNanos());
+		assertEquals(Arrays.asList(up, upReleased, up, upReleased), replayer.getSequence());
+	}
+
+	@Test
+	public void framesFollowTheRecordedClockAtAnySpeed() throws Exception {
+		// Out and back within one click frame cancels out
+		recording recording = new recording("up");
+		recording.event(0, clickStateMachine.PRESS, 0);
+		recording.event(0, clickStateMachine.EXIT, 2);
+		recording.event(0, clickStateMachine.ENTER, 2);
+		recording.event(0, clickStateMachine.RELEASE, 100);
+		recording.close();
+		assertEquals(Arrays.asList(up, upReleased), replay(0).getSequence());
+		assertEquals(Arrays.asList(up, upReleased), replay(1).getSequence());
+
+		// Out and back over several frames doesn't
+		recording = new recording("up");
+		recording.event(0, clickStateMachine.PRESS, 0);
+		recording.event(0, clickStateMachine.EXIT, 40);
+		recording.event(0, clickStateMachine.ENTER, 40);
+		recording.event(0, clickStateMachine.RELEASE, 40);
+		recording.close();
+		assertEquals(Arrays.asList(up, upReleased, up, upReleased), replay(0).getSequence());
+		assertEquals(Arrays.asList(up, upReleased, up, upReleased), replay(1).getSequence());
+	}
+
+	@Test
+	public void heldKeyAtTheEndIsReported() throws Exception {
+		recording recording = new recording("down");
+		recording.event(0, clickStateMachine.PRESS, 0);
+		recording.close();
+
+		inputReplayer replayer = replay(0);
+		assertEquals(Arrays.asList(down), replayer.getSequence());
+		assertEquals(Arrays.asList(KeyEvent.getKeyText(KeyEvent.VK_DOWN)), replayer.getHeldKeys());
+	}
+
+	@Test
+	public void refusesAFileThatIsNotARecording() throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("design 1360 768\n".getBytes("US-ASCII"));
+		}
+		assertLoadFails("Not a recording");
+	}
+
+	@Test
+	public void refusesAButtonTheLayoutDoesNotHave() throws IOException {
+		recording recording = new recording("up", "sideways");
+		recording.event(0, clickStateMachine.PRESS, 0);
+		recording.close();
+		assertLoadFails("sideways");
+	}
+
+	@Test
+	public void refusesAnEventForAnUnknownButtonIndex() throws IOException {
+		try (DataOutputStream out = header("up")) {
+			event(out, 0, clickStateMachine.PRESS);
+			event(out, 1, clickStateMachine.RELEASE);
+		}
+		assertLoadFails("damaged after 1 events");
+	}
+
+	@Test
+	public void refusesAnUnknownEventKind() throws IOException {
+		try (DataOutputStream out = header("up")) {
+			event(out, 0, clickStateMachine.EXIT + 1);
+		}
+		assertLoadFails("damaged after 0 events");
+	}
+
+	@Test
+	public void refusesARecordingCutOffMidEvent() throws IOException {
+		recording recording = new recording("up");
+		recording.event(0, clickStateMachine.PRESS, 0);
+		recording.event(0, clickStateMachine.RELEASE, 100);
+		recording.event(0, clickStateMachine.PRESS, 100);
+		recording.close();
+		try (RandomAccessFile cut = new RandomAccessFile(file, "rw")) {
+			cut.setLength(cut.length() - 1);
+		}
+		assertLoadFails("cut off after 2 events");
+	}
+
+	@Test
+	public void refusesACutOffHeader() throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+			out.writeInt(inputRecorder.magic);
+			out.writeInt(2);
+			out.writeUTF("up");
+		}
+		assertLoadFails();
+	}
+
+	private inputReplayer replay(double speed) throws Exception {
+		inputReplayer replayer = new inputReplayer(layout);
+		replayer.load(file);
+		replayer.replay(speed);
+		return replayer;
+	}
+
+	private IOException assertLoadFails() {
+		return assertThrows(IOException.class, new Executable() {
+			@Override
+			public void execute() throws Throwable { new inputReplayer(layout).load(file); }
+		});
+	}
+
+	private void assertLoadFails(String message) {
+		IOException e = assertLoadFails();
+		assertTrue(e.getMessage().contains(message), e.getMessage());
+	}
+
+	private DataOutputStream header(String... ids) throws IOException {
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		out.writeInt(inputRecorder.magic);
+		out.writeInt(ids.length);
+		for (String id : ids) {
+			out.writeUTF(id);
+		}
+		return out;
+	}
+
+	private static void event(DataOutputStream out, int button, int kind) throws IOException {
+		out.writeInt(0);
+		out.writeByte(button);
+		out.writeByte(kind);
+	}
+
+	/**
+	 * Records onto the test's file through inputRecorder,
+	 * with buttons standing in for the overlay's own, on
+	 * a made-up clock.
+	 */
+	private class recording {
+		private final List<simulationButton> buttons = new ArrayList<simulationButton>();
+		private final inputRecorder recorder;
+		private long nanos = TimeUnit.SECONDS.toNanos(1);
+
+		recording(String... ids) throws IOException {
+			for (int i = 0; i < ids.length; i++) {
+				buttons.add(new simulationButton(null, 0, 0, 0, new Rectangle(0, 0, 1, 1)));
+			}
+			recorder = new inputRecorder(file, ids, buttons.toArray(new simulationButton[ids.length]));
+		}
+
+		void event(int button, int kind, long afterMillis) {
+			nanos += TimeUnit.MILLISECONDS.toNanos(afterMillis);
+			recorder.record(buttons.get(button), kind, nanos);
+		}
+
+		long close() {
+			recorder.close();
+			return recorder.getEvents();
+		}
+	}
+
+}
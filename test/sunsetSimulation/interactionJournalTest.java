@@ -0,0 +1,265 @@
+/**
+ * interactionJournalTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Writes interactionJournal files into a temporary
+ * directory and reads them back with journalReader:
+ * the header, the records, a full file rolling over
+ * to the next, a next file that can't be opened,
+ * and files the reader has to refuse.
+ */
+public class interactionJournalTest {
+
+	private static final int up = KeyEvent.VK_UP;
+	private static final int stage = KeyEvent.VK_ALT;
+	private static final long roomy = 1 << 16;
+
+	@TempDir
+	File temp;
+
+	@Test
+	public void recordsReadBackAsUsage() throws IOException {
+		File dir = new File(temp, "journal");
+		interactionJournal journal = new interactionJournal(dir, roomy);
+		LocalDate today = LocalDate.now();
+		journal.transition(up, simulationButton.IDLE, simulationButton.CLICKED);
+		journal.injected(up, TimeUnit.MILLISECONDS.toNanos(2));
+		journal.transition(up, simulationButton.CLICKED, simulationButton.IDLE);
+		journal.transition(stage, simulationButton.IDLE, simulationButton.CLICKED);
+		journal.injected(stage, TimeUnit.MILLISECONDS.toNanos(4));
+		journal.transition(stage, simulationButton.CLICKED, simulationButton.ACTIVE);
+		// Pressed, but no key reached the OS
+		journal.transition(up, simulationButton.IDLE, simulationButton.CLICKED);
+		journal.close();
+
+		journalReader reader = read(files(dir));
+		assertEquals(5, reader.getRecords());
+		journalReader.usage u = reader.get(today, up);
+		assertNotNull(u);
+		assertEquals(2, u.presses);
+		assertEquals(0, u.selections);
+		assertEquals(Arrays.asList(Long.valueOf(TimeUnit.MILLISECONDS.toNanos(2))), u.latencies);
+		journalReader.usage s = reader.get(today, stage);
+		assertEquals(1, s.presses);
+		assertEquals(1, s.selections);
+		assertEquals(Arrays.asList(Long.valueOf(TimeUnit.MILLISECONDS.toNanos(4))), s.latencies);
+	}
+
+	@Test
+	public void headerAndRecordLayout() throws IOException {
+		File dir = new File(temp, "journal");
+		long before = System.currentTimeMillis();
+		interactionJournal journal = new interactionJournal(dir, roomy);
+		journal.transition(up, simulationButton.IDLE, simulationButton.CLICKED);
+		journal.injected(up, 1234);
+		journal.close();
+		long after = System.currentTimeMillis();
+
+		List<File> files = files(dir);
+		assertEquals(1, files.size());
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(files.get(0).toPath()));
+		assertEquals(roomy, bytes.capacity());
+		assertEquals(interactionJournal.magic, bytes.getInt(0));
+		assertEquals(interactionJournal.recordSize, bytes.getInt(4));
+		assertTrue(bytes.getLong(8) >= before && bytes.getLong(8) <= after);
+		int at = interactionJournal.headerSize;
+		assertTrue(bytes.getLong(at) >= before && bytes.getLong(at) <= after);
+		assertEquals(up, bytes.getInt(at + 8));
+		assertEquals(simulationButton.IDLE, bytes.get(at + 12));
+		assertEquals(simulationButton.CLICKED, bytes.get(at + 13));
+		assertEquals(1234, bytes.getLong(at + 16));
+		// The next record is still zero, ending the file
+		assertEquals(0, bytes.getLong(at + interactionJournal.recordSize));
+	}
+
+	@Test
+	public void fullFileRollsOverToTheNext() throws IOException {
+		File dir = new File(temp, "journal");
+		interactionJournal journal = new interactionJournal(dir,
+				interactionJournal.headerSize + 3 * interactionJournal.recordSize);
+		for (int i = 0; i < 5; i++) {
+			journal.transition(up, simulationButton.IDLE, simulationButton.CLICKED);
+		}
+		journal.close();
+
+		List<File> files = files(dir);
+		assertEquals(2, files.size());
+		List<Integer> counts = new ArrayList<Integer>();
+		for (File file : files) {
+			counts.add(Integer.valueOf(read(Collections.singletonList(file)).getRecords()));
+		}
+		Collections.sort(counts);
+		assertEquals(Arrays.asList(Integer.valueOf(2), Integer.valueOf(3)), counts);
+		assertEquals(5, read(files).getRecords());
+	}
+
+	@Test
+	public void tinyFileStillHoldsARecord() throws IOException {
+		File dir = new File(temp, "journal");
+		interactionJournal journal = new interactionJournal(dir, 1);
+		journal.transition(up, simulationButton.IDLE, simulationButton.CLICKED);
+		journal.transition(up, simulationButton.CLICKED, simulationButton.IDLE);
+		journal.close();
+
+		List<File> files = files(dir);
+		assertEquals(2, files.size());
+		for (File file : files) {
+			assertEquals(interactionJournal.headerSize + interactionJournal.recordSize, file.length());
+		}
+		assertEquals(2, read(files).getRecords());
+	}
+
+	@Test
+	public void nextFileThatCannotBeOpenedStopsTheJournal() throws IOException {
+		// Windows won't rename a directory with a file mapped in it
+		assumeFalse(sunsetSimulation.onWindows());
+		File dir = new File(temp, "journal");
+		interactionJournal journal = new interactionJournal(dir,
+				interactionJournal.headerSize + interactionJournal.recordSize);
+		journal.transition(up, simulationButton.IDLE, simulationButton.CLICKED);
+		File moved = new File(temp, "moved");
+		assertTrue(dir.renameTo(moved));
+		// A plain file where the directory was: the next file can't be made
+		assertTrue(dir.createNewFile());
+
+		journal.transition(up, simulationButton.CLICKED, simulationButton.IDLE);
+		journal.transition(up, simulationButton.IDLE, simulationButton.CLICKED);
+		journal.injected(up, 1);
+		journal.close();
+
+		assertTrue(dir.isFile());
+		assertEquals(1, read(files(moved)).getRecords());
+	}
+
+	@Test
+	public void directoryThatCannotBeMadeFailsTheJournal() throws IOException {
+		final File dir = new File(temp, "journal");
+		assertTrue(dir.createNewFile());
+		assertThrows(IOException.class, new Executable() {
+			@Override
+			public void execute() throws Throwable { new interactionJournal(dir, roomy); }
+		});
+	}
+
+	@Test
+	public void readerSkipsFilesThatAreNotJournals() throws IOException {
+		File text = new File(temp, "notes.bin");
+		Files.write(text.toPath(), "design 1360 768\n".getBytes("US-ASCII"));
+		File shorter = new File(temp, "short.bin");
+		Files.write(shorter.toPath(), new byte[] { 0x53, 0x53 });
+		File empty = new File(temp, "empty.bin");
+		Files.write(empty.toPath(), new byte[0]);
+
+		assertEquals(0, read(Arrays.asList(text, shorter, empty)).getRecords());
+	}
+
+	@Test
+	public void readerStepsByTheHeadersRecordSize() throws IOException {
+		// A later version with longer records still reads
+		int size = interactionJournal.recordSize + 8;
+		ByteBuffer bytes = header(size, 3);
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 2; i++) {
+			int at = interactionJournal.headerSize + i * size;
+			bytes.putLong(at, now);
+			bytes.putInt(at + 8, up);
+			bytes.put(at + 13, (byte)simulationButton.CLICKED);
+			bytes.putLong(at + 16, -1);
+			// A field this reader doesn't know about
+			bytes.putLong(at + interactionJournal.recordSize, 0xFFFFFFFFL);
+		}
+		File file = write("later.bin", bytes);
+
+		journalReader reader = read(Collections.singletonList(file));
+		assertEquals(2, reader.getRecords());
+		assertEquals(2, reader.get(LocalDate.now(), up).presses);
+	}
+
+	@Test
+	public void readerRefusesADamagedRecordSize() throws IOException {
+		final List<File> files = new ArrayList<File>();
+		for (int size : new int[] { 0, -interactionJournal.recordSize, 8 }) {
+			ByteBuffer bytes = header(size, 2);
+			bytes.putLong(interactionJournal.headerSize, System.currentTimeMillis());
+			files.add(write("size" + size + ".bin", bytes));
+		}
+		assertTimeoutPreemptively(Duration.ofSeconds(10), new Executable() {
+			@Override
+			public void execute() throws Throwable { assertEquals(0, read(files).getRecords()); }
+		});
+	}
+
+	private static journalReader read(List<File> files) throws IOException {
+		journalReader reader = new journalReader();
+		for (File file : files) {
+			reader.read(file);
+		}
+		return reader;
+	}
+
+	private static List<File> files(File dir) {
+		File[] files = dir.listFiles();
+		assertNotNull(files);
+		Arrays.sort(files);
+		return Arrays.asList(files);
+	}
+
+	/**
+	 * @param recordSize  record size to claim
+	 * @param records     room for how many records
+	 * @return a journal header followed by zeroed records
+	 */
+	private static ByteBuffer header(int recordSize, int records) {
+		ByteBuffer bytes = ByteBuffer.allocate(interactionJournal.headerSize
+				+ Math.max(interactionJournal.recordSize, recordSize) * records);
+		bytes.putInt(0, interactionJournal.magic);
+		bytes.putInt(4, recordSize);
+		bytes.putLong(8, System.currentTimeMillis());
+		return bytes;
+	}
+
+	private File write(String name, ByteBuffer bytes) throws IOException {
+		File file = new File(temp, name);
+		Files.write(file.toPath(), bytes.array());
+		return file;
+	}
+
+}
@@ -0,0 +1,119 @@
+/**
+ * keyPulseSchedulerTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks that overlapping pulses on two keys are
+ * each released on time, by stamping every event
+ * as the backend receives it.
+ */
+public class keyPulseSchedulerTest {
+
+	private static final int[] keys = { KeyEvent.VK_ALT, KeyEvent.VK_SPACE };
+	private static final long longPulseNanos = TimeUnit.MILLISECONDS.toNanos(60);
+	private static final long shortPulseNanos = TimeUnit.MILLISECONDS.toNanos(30);
+	// Never early; late by at most this, which leaves room for a loaded build machine
+	private static final long lateNanos = TimeUnit.MILLISECONDS.toNanos(2);
+	private static final long earlyNanos = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long timeoutNanos = TimeUnit.SECONDS.toNanos(5);
+
+	/**
+	 * Remembers when each event reached it.
+	 */
+	private static class stampingKeyInjector implements keyInjector {
+		final List<int[]> events = new ArrayList<int[]>();
+		final List<Long> stamps = new ArrayList<Long>();
+
+		@Override
+		public synchronized void send(int[] keys, boolean[] down, int count) {
+			long now = System.nanoTime();
+			for (int i = 0; i < count; i++) {
+				events.add(new int[]{ keys[i], down[i] ? 1 : 0 });
+				stamps.add(Long.valueOf(now));
+			}
+		}
+
+		synchronized long stamp(int key, boolean down) {
+			for (int i = 0; i < events.size(); i++) {
+				if (events.get(i)[0] == key && (events.get(i)[1] == 1) == down) {
+					return stamps.get(i).longValue();
+				}
+			}
+			return -1;
+		}
+
+		synchronized int size() {
+			return events.size();
+		}
+
+		synchronized void clear() {
+			events.clear();
+			stamps.clear();
+		}
+	}
+
+	@Test
+	public void overlappingPulsesEachEndOnTime() throws InterruptedException {
+		keyPulseScheduler pulses = new keyPulseScheduler(longPulseNanos);
+		pulses.setWidth(KeyEvent.VK_SPACE, shortPulseNanos);
+		stampingKeyInjector backend = new stampingKeyInjector();
+		inputInjector injector = new inputInjector(backend, new pressedKeySet(keys), pulses, null, null,
+				new Runnable() {
+					@Override
+					public void run() {}
+				});
+		// Once through first, so class loading and compiling aren't timed
+		injector.pulse(KeyEvent.VK_ALT, 0);
+		injector.pulse(KeyEvent.VK_SPACE, 0);
+		await(backend, 4);
+		backend.clear();
+
+		injector.pulse(KeyEvent.VK_ALT, 0);
+		Thread.sleep(10);
+		// Ends before the first pulse does
+		injector.pulse(KeyEvent.VK_SPACE, 0);
+		await(backend, 4);
+		assertEquals(4, backend.size());
+		assertOnTime(longPulseNanos, backend.stamp(KeyEvent.VK_ALT, true), backend.stamp(KeyEvent.VK_ALT, false));
+		assertOnTime(shortPulseNanos, backend.stamp(KeyEvent.VK_SPACE, true),
+				backend.stamp(KeyEvent.VK_SPACE, false));
+		assertTrue(backend.stamp(KeyEvent.VK_SPACE, false) < backend.stamp(KeyEvent.VK_ALT, false));
+	}
+
+	private static void await(stampingKeyInjector backend, int events) throws InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (backend.size() < events && deadline - System.nanoTime() > 0) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static void assertOnTime(long widthNanos, long down, long up) {
+		long held = up - down;
+		assertTrue(held >= widthNanos - earlyNanos, "released early, after " + held + " ns");
+		assertTrue(held <= widthNanos + lateNanos, "released late, after " + held + " ns");
+	}
+
+}
@@ -0,0 +1,156 @@
+/**
+ * pressedKeySetTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks that pressedKeySet knows exactly which
+ * keys are down, that the safety sweep releases
+ * only those plus any the OS reports stuck, and
+ * that inputInjector keeps it up to date as keys
+ * are delivered, pulses included.
+ */
+public class pressedKeySetTest {
+
+	private static final int[] keys = {
+		KeyEvent.VK_RIGHT, KeyEvent.VK_LEFT, KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_5, KeyEvent.VK_C,
+		KeyEvent.VK_X, KeyEvent.VK_CONTROL, KeyEvent.VK_ALT, KeyEvent.VK_SPACE, KeyEvent.VK_SHIFT,
+	};
+	private static final long timeoutNanos = TimeUnit.SECONDS.toNanos(5);
+
+	@Test
+	public void tracksExactlyTheKeysDown() {
+		pressedKeySet pressed = new pressedKeySet(keys);
+		assertTrue(pressed.isEmpty());
+		pressed.set(KeyEvent.VK_UP, true);
+		pressed.set(KeyEvent.VK_SHIFT, true);
+		assertTrue(pressed.isDown(KeyEvent.VK_UP));
+		assertTrue(pressed.isDown(KeyEvent.VK_SHIFT));
+		assertFalse(pressed.isDown(KeyEvent.VK_DOWN));
+		// Pressing twice is still one key down
+		pressed.set(KeyEvent.VK_UP, true);
+		pressed.set(KeyEvent.VK_UP, false);
+		assertFalse(pressed.isDown(KeyEvent.VK_UP));
+		pressed.set(KeyEvent.VK_SHIFT, false);
+		assertTrue(pressed.isEmpty());
+	}
+
+	@Test
+	public void ignoresKeysItDoesNotTrack() {
+		pressedKeySet pressed = new pressedKeySet(keys);
+		assertEquals(-1, pressed.slotOf(KeyEvent.VK_Q));
+		pressed.set(KeyEvent.VK_Q, true);
+		assertFalse(pressed.isDown(KeyEvent.VK_Q));
+		assertTrue(pressed.isEmpty());
+	}
+
+	@Test
+	public void sweepReleasesNothingWhenNothingIsDown() {
+		pressedKeySet pressed = new pressedKeySet(keys);
+		assertEquals(0, pressed.keysToRelease(null).length);
+		assertEquals(0, pressed.keysToRelease(osState()).length);
+	}
+
+	@Test
+	public void sweepReleasesHeldAndStuckKeys() {
+		pressedKeySet pressed = new pressedKeySet(keys);
+		pressed.set(KeyEvent.VK_LEFT, true);
+		assertArrayEquals(new int[]{ KeyEvent.VK_LEFT }, pressed.keysToRelease(null));
+		// Stuck in the OS without the overlay knowing, in slot order
+		assertArrayEquals(new int[]{ KeyEvent.VK_LEFT, KeyEvent.VK_ALT },
+				pressed.keysToRelease(osState(KeyEvent.VK_ALT, KeyEvent.VK_Q)));
+		// Held by the overlay counts whatever the OS says
+		assertArrayEquals(new int[]{ KeyEvent.VK_LEFT }, pressed.keysToRelease(osState()));
+	}
+
+	@Test
+	public void refusesMoreThan64Keys() {
+		assertThrows(IllegalArgumentException.class, new Executable() {
+			@Override
+			public void execute() {
+				new pressedKeySet(new int[65]);
+			}
+		});
+	}
+
+	@Test
+	public void injectorKeepsTheSetUpToDate() throws InterruptedException {
+		pressedKeySet pressed = new pressedKeySet(keys);
+		recordingKeyInjector recorder = new recordingKeyInjector();
+		inputInjector injector = new inputInjector(recorder, pressed,
+				new keyPulseScheduler(TimeUnit.MILLISECONDS.toNanos(200)), null, null, new Runnable() {
+					@Override
+					public void run() {}
+				});
+		assertTrue(await(injector.press(KeyEvent.VK_UP)));
+		assertTrue(pressed.isDown(KeyEvent.VK_UP));
+		assertTrue(await(injector.release(KeyEvent.VK_UP)));
+		assertTrue(pressed.isEmpty());
+
+		assertTrue(await(injector.pulse(KeyEvent.VK_SPACE, 0)));
+		assertTrue(pressed.isDown(KeyEvent.VK_SPACE));
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (!pressed.isEmpty() && deadline - System.nanoTime() > 0) {
+			Thread.sleep(1);
+		}
+		assertTrue(pressed.isEmpty());
+
+		// The sweep sends only what is held
+		recorder.clear();
+		assertTrue(await(injector.press(KeyEvent.VK_DOWN)));
+		assertTrue(await(injector.releaseAll(pressed.keysToRelease(null))));
+		assertTrue(pressed.isEmpty());
+		assertEquals(Arrays.asList(Integer.valueOf(KeyEvent.VK_DOWN), Integer.valueOf(-KeyEvent.VK_DOWN)),
+				recorder.getEvents());
+	}
+
+	private static keyStateSource osState(int... down) {
+		final Set<Integer> keys = new HashSet<Integer>();
+		for (int key : down) {
+			keys.add(Integer.valueOf(key));
+		}
+		return new keyStateSource() {
+			@Override
+			public boolean isDown(int key) { return keys.contains(Integer.valueOf(key)); }
+		};
+	}
+
+	private static boolean await(inputInjector.command c) throws InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (!c.isDone()) {
+			if (deadline - System.nanoTime() < 0) {
+				return false;
+			}
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,47 @@
+/**
+ * sendInputKeyInjectorTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks that sendInputKeyInjector fails as soon
+ * as it is made where user32 can't be bound, so
+ * createKeyInjector falls back to Robot instead of
+ * every key being lost later on the injector
+ * thread. Only runs off Windows.
+ */
+public class sendInputKeyInjectorTest {
+
+	@Test
+	public void failsWhenMadeWithoutUser32() {
+		assumeFalse(sunsetSimulation.onWindows());
+		Executable make = new Executable() {
+			@Override
+			public void execute() {
+				new sendInputKeyInjector();
+			}
+		};
+		assertThrows(LinkageError.class, make);
+		// And again, once the failed binding has left User32 unusable
+		assertThrows(LinkageError.class, make);
+	}
+
+}
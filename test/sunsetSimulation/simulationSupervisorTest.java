@@ -0,0 +1,142 @@
+/**
+ * simulationSupervisorTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Supervises a stand-in for the simulation that
+ * exits straight away, `java -version`, and checks
+ * the backoff between relaunches and that nothing
+ * is relaunched once the supervisor has stopped.
+ */
+public class simulationSupervisorTest {
+
+	private static final String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+	private static final long timeoutNanos = TimeUnit.SECONDS.toNanos(60);
+	// Long enough for any relaunch a stopped supervisor wrongly scheduled to happen
+	private static final long quietMillis = 500;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void backoffDoublesUpToTheCap() throws InterruptedException {
+		simulationSupervisor supervisor = supervisor(java, 20, 160, TimeUnit.HOURS.toMillis(1));
+		List<long[]> seen = watch(supervisor, 6);
+		supervisor.stop();
+		int highest = 0;
+		for (long[] sample : seen) {
+			int restarts = (int) sample[0];
+			assertEquals(Math.min(20L << restarts, 160), sample[1], "backoff after " + restarts + " restarts");
+			highest = Math.max(highest, restarts);
+		}
+		assertTrue(highest >= 6);
+	}
+
+	@Test
+	public void stableRunResetsTheBackoff() throws InterruptedException {
+		simulationSupervisor supervisor = supervisor(java, 20, 160, 0);
+		List<long[]> seen = watch(supervisor, 4);
+		supervisor.stop();
+		for (long[] sample : seen) {
+			// Every run counts as stable, so each relaunch waits the minimum
+			assertEquals(sample[0] == 0 ? 20 : 40, sample[1], "backoff after " + sample[0] + " restarts");
+		}
+	}
+
+	@Test
+	public void nothingRelaunchesAfterStop() throws InterruptedException {
+		simulationSupervisor supervisor = supervisor(java, 20, 160, TimeUnit.HOURS.toMillis(1));
+		watch(supervisor, 1);
+		supervisor.stop();
+		int restarts = supervisor.getRestarts();
+		Thread.sleep(quietMillis);
+		assertEquals(restarts, supervisor.getRestarts());
+		Process p = supervisor.getProcess();
+		assertTrue(p == null || p.waitFor(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void stopKillsTheRunningSimulation() throws IOException, InterruptedException {
+		assumeFalse(sunsetSimulation.onWindows());
+		File script = dir.resolve("simulation.sh").toFile();
+		Files.write(script.toPath(), "#!/bin/sh\nexec sleep 30\n".getBytes(StandardCharsets.US_ASCII));
+		assertTrue(script.setExecutable(true));
+		simulationSupervisor supervisor = supervisor(script.getPath(), 20, 160, TimeUnit.HOURS.toMillis(1));
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (!supervisor.isReady() && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		Process p = supervisor.getProcess();
+		assertNotNull(p);
+		assertTrue(p.isAlive());
+
+		supervisor.stop();
+		assertTrue(p.waitFor(5, TimeUnit.SECONDS));
+		Thread.sleep(quietMillis);
+		assertEquals(0, supervisor.getRestarts());
+		assertFalse(supervisor.isReady());
+	}
+
+	private static simulationSupervisor supervisor(String path, long minBackoffMillis, long maxBackoffMillis,
+			long stableMillis) {
+		simulationSupervisor supervisor = new simulationSupervisor(path, "Sunset", null, false,
+				"Sunset Simulation supervisor test", minBackoffMillis, maxBackoffMillis, stableMillis);
+		supervisor.start();
+		return supervisor;
+	}
+
+	/**
+	 * @param supervisor  the supervisor to watch
+	 * @param restarts    how many relaunches to wait for
+	 * @return consistent (restarts, backoff) pairs seen on the way
+	 */
+	private static List<long[]> watch(simulationSupervisor supervisor, int restarts) throws InterruptedException {
+		List<long[]> seen = new ArrayList<long[]>();
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (true) {
+			int before = supervisor.getRestarts();
+			long backoff = supervisor.getBackoffMillis();
+			if (supervisor.getRestarts() == before) {
+				seen.add(new long[] { before, backoff });
+			}
+			if (before >= restarts || System.nanoTime() > deadline) {
+				break;
+			}
+			Thread.sleep(2);
+		}
+		assertTrue(supervisor.getRestarts() >= restarts, "relaunched " + supervisor.getRestarts() + " times");
+		return seen;
+	}
+
+}
@@ -0,0 +1,204 @@
+/**
+ * stationTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Runs two hosted stations' key paths side by
+ * side, as one overlay process does: each with
+ * its own inputInjector and pressedKeySet, both
+ * on the shared injectorThread. One station's
+ * idle release must never let go of the other's
+ * keys. Also checks each station's own names
+ * and options.
+ */
+public class stationTest {
+
+	private static final int[] keys = { KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_ALT };
+	private static final long pulseNanos = TimeUnit.MILLISECONDS.toNanos(20);
+	private static final long timeoutNanos = TimeUnit.SECONDS.toNanos(5);
+
+	@Test
+	public void idleReleaseOnOneStationLeavesTheOtherAlone() throws InterruptedException {
+		injectorThread shared = new injectorThread();
+		stationKeys one = new stationKeys(shared);
+		stationKeys two = new stationKeys(shared);
+
+		assertTrue(await(one.injector.press(KeyEvent.VK_UP)));
+		assertTrue(await(one.injector.press(KeyEvent.VK_ALT)));
+		assertTrue(await(two.injector.press(KeyEvent.VK_UP)));
+
+		// Station one goes idle; hosted stations don't ask the OS
+		sunsetSimulation.releaseKeys(one.pressed, null, one.injector);
+		awaitEvents(one, 4);
+		assertEquals(new HashSet<Integer>(Arrays.asList(Integer.valueOf(-KeyEvent.VK_UP),
+				Integer.valueOf(-KeyEvent.VK_ALT))), new HashSet<Integer>(one.recorder.getEvents().subList(2, 4)));
+		assertTrue(one.pressed.isEmpty());
+
+		assertEquals(Arrays.asList(Integer.valueOf(KeyEvent.VK_UP)), two.recorder.getEvents());
+		assertTrue(two.pressed.isDown(KeyEvent.VK_UP));
+
+		// Station two still works, and lets go of its own key
+		sunsetSimulation.releaseKeys(two.pressed, null, two.injector);
+		awaitEvents(two, 2);
+		assertEquals(Arrays.asList(Integer.valueOf(KeyEvent.VK_UP), Integer.valueOf(-KeyEvent.VK_UP)),
+				two.recorder.getEvents());
+		assertEquals(4, one.recorder.getEvents().size());
+	}
+
+	@Test
+	public void stationsShareOneInjectorThread() throws InterruptedException {
+		injectorThread shared = new injectorThread();
+		stationKeys one = new stationKeys(shared);
+		stationKeys two = new stationKeys(shared);
+
+		assertTrue(await(one.injector.pulse(KeyEvent.VK_DOWN, System.nanoTime())));
+		assertTrue(await(two.injector.pulse(KeyEvent.VK_DOWN, System.nanoTime())));
+		awaitEvents(one, 2);
+		awaitEvents(two, 2);
+
+		Set<Thread> threads = new HashSet<Thread>(one.threads());
+		threads.addAll(two.threads());
+		assertEquals(1, threads.size());
+		assertNotSame(Thread.currentThread(), threads.iterator().next());
+		assertNotSame(one.pressed, two.pressed);
+	}
+
+	@Test
+	public void idleReleaseWithNothingHeldSendsNothing() throws InterruptedException {
+		stationKeys hosted = new stationKeys(new injectorThread());
+		sunsetSimulation.releaseKeys(hosted.pressed, null, hosted.injector);
+		assertEquals(0, hosted.recorder.getCalls());
+
+		// A lone station also lets go of keys the OS says are down
+		stationKeys alone = new stationKeys(new injectorThread());
+		sunsetSimulation.releaseKeys(alone.pressed, new keyStateSource() {
+			@Override
+			public boolean isDown(int key) {
+				return key == KeyEvent.VK_DOWN;
+			}
+		}, alone.injector);
+		awaitEvents(alone, 1);
+		assertEquals(Arrays.asList(Integer.valueOf(-KeyEvent.VK_DOWN)), alone.recorder.getEvents());
+	}
+
+	@Test
+	public void hostedStationsHaveTheirOwnNamesAndOptions() {
+		String[] properties = { "sunsetSimulation.controlPort", "sunsetSimulation.journalDir",
+				"sunsetSimulation.station.2.simulationPath", "sunsetSimulation.station.2.controlPort" };
+		try {
+			System.setProperty("sunsetSimulation.controlPort", "7000");
+			System.setProperty("sunsetSimulation.journalDir", "journal");
+			System.setProperty("sunsetSimulation.station.2.simulationPath", "two.exe");
+			station one = new station(1, true, null, "Overlay", "Simulation", "sim.exe");
+			station two = new station(2, true, null, "Overlay", "Simulation", "sim.exe");
+			station alone = new station(1, false, null, "Overlay", "Simulation", "sim.exe");
+
+			assertEquals("Overlay [1]", one.overlayName);
+			assertEquals("Overlay [2]", two.overlayName);
+			assertEquals("Overlay", alone.overlayName);
+			assertEquals("1", one.getName());
+			assertNull(alone.getName());
+
+			assertEquals("sim.exe", one.simulationPath);
+			assertEquals("two.exe", two.simulationPath);
+			assertEquals("sim.exe", alone.simulationPath);
+
+			assertEquals(Integer.valueOf(7000), one.port("controlPort"));
+			assertEquals(Integer.valueOf(7001), two.port("controlPort"));
+			assertEquals(Integer.valueOf(7000), alone.port("controlPort"));
+			System.setProperty("sunsetSimulation.station.2.controlPort", "9000");
+			assertEquals(Integer.valueOf(9000), two.port("controlPort"));
+
+			assertEquals("journal-1", one.path("journalDir"));
+			assertEquals("journal-2", two.path("journalDir"));
+			assertEquals("journal", alone.path("journalDir"));
+			assertFalse(one.path("journalDir").equals(two.path("journalDir")));
+		} finally {
+			for (String property : properties) {
+				System.clearProperty(property);
+			}
+		}
+	}
+
+	private static void awaitEvents(stationKeys station, int count) throws InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (station.recorder.getEvents().size() < count && deadline - System.nanoTime() > 0) {
+			Thread.sleep(1);
+		}
+		assertEquals(count, station.recorder.getEvents().size());
+	}
+
+	private static boolean await(inputInjector.command c) throws InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (!c.isDone()) {
+			if (deadline - System.nanoTime() < 0) {
+				return false;
+			}
+			Thread.sleep(1);
+		}
+		return !c.isFailed();
+	}
+
+	/**
+	 * One station's key path, as the overlay builds
+	 * it, ending in a recordingKeyInjector that also
+	 * notes which thread delivered each batch.
+	 */
+	private static class stationKeys {
+		final recordingKeyInjector recorder = new recordingKeyInjector();
+		final pressedKeySet pressed = new pressedKeySet(keys);
+		final inputInjector injector;
+		private final List<Thread> threads = new ArrayList<Thread>();
+
+		stationKeys(injectorThread thread) {
+			injector = new inputInjector(new keyInjector() {
+				@Override
+				public void send(int[] keys, boolean[] down, int count) {
+					synchronized (threads) {
+						threads.add(Thread.currentThread());
+					}
+					recorder.send(keys, down, count);
+				}
+			}, pressed, new keyPulseScheduler(pulseNanos), null, null, new Runnable() {
+				@Override
+				public void run() {}
+			}, thread);
+		}
+
+		List<Thread> threads() {
+			synchronized (threads) {
+				return new ArrayList<Thread>(threads);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+/**
+ * touchRouterTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.EventQueue;
+import java.awt.Rectangle;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Replays contacts through scriptedTouchSource into
+ * touchRouter and checks which button each one hits,
+ * and the time stamps it carries down the touch path.
+ * Buttons sit at their layout bounds, standing in
+ * for a window at the screen's origin.
+ */
+public class touchRouterTest {
+
+	private final List<String> delivered = new ArrayList<String>();
+	private final List<Long> stamps = new ArrayList<Long>();
+	private simulationButton a;
+	private simulationButton b;
+	private clickStateMachine clicks;
+	private latencyStats latency;
+	private scriptedTouchSource touches;
+
+	@BeforeEach
+	public void setUp() {
+		a = new simulationButton(null, 0, 0, 'A', new Rectangle(0, 0, 100, 100));
+		b = new simulationButton(null, 0, 0, 'B', new Rectangle(100, 0, 100, 100));
+		clicks = new clickStateMachine(new clickStateMachine.sink() {
+			@Override
+			public void click(simulationButton button, boolean released, long touchNanos) {
+				delivered.add((button == a ? "a" : "b") + (released ? " up" : " down"));
+				stamps.add(Long.valueOf(touchNanos));
+			}
+		}, 0);
+		latency = new latencyStats(new int[] { 'A', 'B' });
+		touches = new scriptedTouchSource();
+		touches.start(new touchRouter(Arrays.asList(a, b), clicks, latency) {
+			@Override
+			Rectangle screenBounds(simulationButton button) {
+				return button.getBounds();
+			}
+		});
+	}
+
+	@Test
+	public void tapPressesTheButtonUnderTheFinger() throws Exception {
+		long before = System.nanoTime();
+		play(touchSource.DOWN, 150, 50);
+		play(touchSource.UP, 150, 50);
+		long after = System.nanoTime();
+
+		assertEquals(Arrays.asList("b down", "b up"), delivered);
+		for (Long stamp : stamps) {
+			assertTrue(stamp.longValue() >= before && stamp.longValue() <= after);
+		}
+		latencyHistogram listener = latency.get(latencyStats.OS_TO_LISTENER);
+		assertEquals(2, listener.getCount());
+		assertTrue(listener.getMax() <= after - before);
+	}
+
+	@Test
+	public void slideMovesThePressAcross() throws Exception {
+		play(touchSource.DOWN, 50, 50);
+		play(touchSource.MOVE, 60, 50);
+		play(touchSource.MOVE, 150, 50);
+		play(touchSource.UP, 150, 50);
+
+		assertEquals(Arrays.asList("a down", "a up", "b down", "b up"), delivered);
+		assertEquals(4, latency.get(latencyStats.OS_TO_LISTENER).getCount());
+	}
+
+	@Test
+	public void contactOffTheButtonsIsIgnored() throws Exception {
+		play(touchSource.DOWN, 250, 50);
+		play(touchSource.MOVE, 50, 150);
+		play(touchSource.UP, 50, 150);
+
+		assertTrue(delivered.isEmpty());
+		assertEquals(0, latency.get(latencyStats.OS_TO_LISTENER).getCount());
+	}
+
+	@Test
+	public void slideOntoAButtonPressesIt() throws Exception {
+		play(touchSource.DOWN, 250, 50);
+		play(touchSource.MOVE, 50, 50);
+		play(touchSource.MOVE, 50, 150);
+		play(touchSource.UP, 50, 150);
+
+		assertEquals(Arrays.asList("a down", "a up"), delivered);
+		assertEquals(1, latency.get(latencyStats.OS_TO_LISTENER).getCount());
+	}
+
+	@Test
+	public void hoverWithoutContactPressesNothing() throws Exception {
+		play(touchSource.MOVE, 50, 50);
+		play(touchSource.MOVE, 150, 50);
+
+		assertTrue(delivered.isEmpty());
+	}
+
+	/**
+	 * @param kind  DOWN, MOVE or UP
+	 * @param x     screen x
+	 * @param y     screen y
+	 * Plays one contact from this thread, as the OS
+	 * would, then waits for the EDT to route it and
+	 * for its frame to end.
+	 */
+	private void play(int kind, int x, int y) throws InterruptedException, InvocationTargetException {
+		touches.play(kind, x, y);
+		EventQueue.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				clicks.endFrame();
+				clicks.endFrame();
+			}
+		});
+	}
+
+}
@@ -0,0 +1,117 @@
+/**
+ * windowResolverTest.java
+ * 
+ * David Smith
+ * Joseph Davidson
+ * Logan McCollough
+ * Electric Life Engineering
+ * 602-920-8257
+ * david.earl.smith@gmail.com
+ * 
+ * See sunsetSimulation.java for information.
+ */
+package sunsetSimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Smith
+ * @version 1.0
+ * 
+ * Checks that windowResolver finds the right
+ * window, and that finding it allocates nothing:
+ * neither the cached lookup every keystroke makes
+ * nor a full scan over hundreds of windows.
+ */
+public class windowResolverTest {
+
+	private static final String simulationName = "Sunset Eruption Sony No Skybox";
+	private static final int windowCount = 300;
+	private static final int lookups = 20000;
+	// Room for the allocation counter itself
+	private static final long slackBytes = 1024;
+
+	private fixedWindowTable table;
+	private windowResolver windows;
+
+	@BeforeEach
+	public void setUp() {
+		String[] titles = new String[windowCount];
+		for (int i = 0; i < titles.length; i++) {
+			titles[i] = "Background window " + i;
+		}
+		titles[windowCount - 2] = simulationName;
+		titles[windowCount - 1] = simulationName;
+		table = new fixedWindowTable(titles);
+		table.setProcessId(windowCount - 1, 100);
+		table.setProcessId(windowCount, 200);
+		windows = new windowResolver(table);
+	}
+
+	@Test
+	public void findsWindowsByTitleAndProcess() {
+		assertEquals(windowCount - 1, windows.find(simulationName, true));
+		assertEquals(windowCount, windows.find(simulationName, true, 200));
+		assertEquals(windowCount - 1, windows.find(simulationName, true, 100));
+		assertEquals(0, windows.find(simulationName, true, 300));
+		assertEquals(0, windows.find("No such window", true));
+		assertEquals(1, windows.find("window 0", false));
+	}
+
+	@Test
+	public void bringsWindowToFrontOnce() {
+		assertTrue(windows.bringToFront(simulationName, true, 200));
+		assertTrue(windows.bringToFront(simulationName, true, 200));
+		assertEquals(windowCount, table.getForeground());
+		assertEquals(1, table.getFocusChanges());
+	}
+
+	@Test
+	public void cachedLookupAllocatesNothing() {
+		assertAllocationFree(new Runnable() {
+			@Override
+			public void run() {
+				windows.find(simulationName, true);
+				windows.find(simulationName, true, 200);
+			}
+		});
+	}
+
+	@Test
+	public void fullScanAllocatesNothing() {
+		assertAllocationFree(new Runnable() {
+			@Override
+			public void run() {
+				windows.invalidate(simulationName);
+				windows.find(simulationName, true);
+			}
+		});
+	}
+
+	/**
+	 * @param lookup  one lookup, run many times
+	 * Warms the lookup up, then checks the thread
+	 * allocated nothing while running it again.
+	 */
+	private static void assertAllocationFree(Runnable lookup) {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		for (int i = 0; i < lookups; i++) {
+			lookup.run();
+		}
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < lookups; i++) {
+			lookup.run();
+		}
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+		assertTrue(allocated < slackBytes, allocated + " bytes allocated over " + lookups + " lookups");
+	}
+
+}